@@ -19,3 +19,20 @@
 # If you keep the line number information, uncomment this to
 # hide the original source file name.
 #-renamesourcefileattribute SourceFile
+
+# Entry points the system instantiates by name from the manifest. AAPT generates rules for these
+# as well, they are kept explicitly so renaming a component can't silently break the face.
+-keep class sh.lrk.grid.GridWatchface { <init>(); }
+-keep class sh.lrk.grid.GridConfigActivity { <init>(); }
+-keep class sh.lrk.grid.SettingsSyncService { <init>(); }
+-keep class sh.lrk.grid.StyledGridWatchface { <init>(); }
+
+# Settings are stored by enum constant name, see GridSettings.
+-keepclassmembers enum sh.lrk.grid.** {
+    public static **[] values();
+    public static ** valueOf(java.lang.String);
+}
+
+# Keep line numbers for stack traces from the field, with the source file name hidden.
+-keepattributes SourceFile,LineNumberTable
+-renamesourcefileattribute SourceFile
@@ -0,0 +1,125 @@
+package sh.lrk.grid;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+import java.util.Calendar;
+
+/**
+ * Draws the ambient frame. The grid and the time are rasterized once per minute into an
+ * {@link Bitmap.Config#ALPHA_8} frame that every redraw only blits, tinted in the theme's ambient
+ * color. The paints come from the ambient {@link PaintSet} of the current mode. The grid is
+ * static and never anti-aliased; with burn-in protection it is drawn sparser, the time is
+ * outlined and the whole frame moves by a few pixels every minute.
+ */
+class AmbientRenderer {
+    /* Cycle of frame shifts in px, one step per minute. */
+    private static final int[] BURN_IN_SHIFT_X = {0, 3, 3, 0, -3, -3, -3, 0, 3};
+    private static final int[] BURN_IN_SHIFT_Y = {0, 0, 3, 3, 3, 0, -3, -3, -3};
+
+    private volatile PaintSet paints;
+    private final TimePainter timePainter = new TimePainter(textSize -> paints.getTextPaint(textSize));
+    private GridPatternType patternType = GridPatternType.FLAT;
+    private GridPattern pattern = patternType.createPattern();
+    private int lineCount = GridPreferences.DEF_LINE_COUNT;
+    private final Canvas frameCanvas = new Canvas();
+
+    private boolean lowBitAmbient = false;
+    private boolean burnInProtection = false;
+
+    private Bitmap frame;
+    private boolean frameValid = false;
+    private int frameMinuteOfDay = -1;
+
+    AmbientRenderer(PaintSet paints) {
+        this.paints = paints;
+    }
+
+    /**
+     * Switches to the paints of another mode or theme.
+     */
+    void setPaints(PaintSet paints) {
+        if (this.paints != paints) {
+            this.paints = paints;
+            invalidate();
+        }
+    }
+
+    void setProperties(boolean lowBitAmbient, boolean burnInProtection) {
+        if (this.lowBitAmbient != lowBitAmbient || this.burnInProtection != burnInProtection) {
+            this.lowBitAmbient = lowBitAmbient;
+            this.burnInProtection = burnInProtection;
+            invalidate();
+        }
+    }
+
+    void setUse24h(boolean use24h) {
+        timePainter.setUse24h(use24h);
+        invalidate();
+    }
+
+    void setPattern(GridPatternType patternType, int lineCount) {
+        if (this.patternType != patternType) {
+            this.patternType = patternType;
+            pattern = patternType.createPattern();
+            invalidate();
+        }
+        if (this.lineCount != lineCount) {
+            this.lineCount = lineCount;
+            invalidate();
+        }
+    }
+
+    void invalidate() {
+        frameValid = false;
+        timePainter.invalidateLayout();
+    }
+
+    void release() {
+        if (frame != null) {
+            BitmapPool.get().release(frame);
+            frame = null;
+        }
+        frameValid = false;
+    }
+
+    void draw(Canvas canvas, Calendar calendar, float centerX, float centerY) {
+        int minuteOfDay = calendar.get(Calendar.HOUR_OF_DAY) * 60 + calendar.get(Calendar.MINUTE);
+        if (!frameValid || frameMinuteOfDay != minuteOfDay
+                || frame.getWidth() != canvas.getWidth() || frame.getHeight() != canvas.getHeight()) {
+            renderFrame(canvas.getWidth(), canvas.getHeight(), calendar, centerX, centerY);
+            frameMinuteOfDay = minuteOfDay;
+        }
+
+        canvas.drawColor(Color.BLACK);
+        if (burnInProtection) {
+            int shift = minuteOfDay % BURN_IN_SHIFT_X.length;
+            canvas.drawBitmap(frame, BURN_IN_SHIFT_X[shift], BURN_IN_SHIFT_Y[shift], paints.frame);
+        } else {
+            canvas.drawBitmap(frame, 0, 0, paints.frame);
+        }
+    }
+
+    private void renderFrame(int width, int height, Calendar calendar, float centerX, float centerY) {
+        if (frame == null || frame.getWidth() != width || frame.getHeight() != height) {
+            if (frame != null) {
+                BitmapPool.get().release(frame);
+            }
+            frame = BitmapPool.get().acquire(width, height, Bitmap.Config.ALPHA_8);
+            frameCanvas.setBitmap(frame);
+            frameValid = false;
+        }
+        if (!frameValid) {
+            /* Sparser grid with burn-in protection, fewer pixels stay lit all the time. */
+            float gridSpacing = (float) height / lineCount * (burnInProtection ? 2f : 1f);
+            pattern.resize(width, height, gridSpacing);
+            pattern.setOffset(0f, 0f);
+            frameValid = true;
+        }
+
+        frame.eraseColor(Color.TRANSPARENT);
+        frameCanvas.drawLines(pattern.getPoints(), 0, pattern.getPointCount(), paints.grid);
+        timePainter.drawTime(frameCanvas, calendar, centerX, centerY);
+    }
+}
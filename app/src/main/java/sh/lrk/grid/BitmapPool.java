@@ -0,0 +1,73 @@
+package sh.lrk.grid;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+
+/**
+ * Process-wide pool for the cache bitmaps of the painters. A released bitmap is kept for the next
+ * painter asking for the same size and config, e.g. a recreated engine or the config preview,
+ * instead of being allocated again. Free bitmaps are kept up to a byte budget, the oldest are
+ * recycled first, and all of them are dropped on memory pressure.
+ * <p>
+ * Bitmaps come back with their old content, callers clear them before drawing.
+ */
+final class BitmapPool {
+    private static final long MAX_FREE_BYTES = 8L * 1024 * 1024;
+    private static final BitmapPool INSTANCE = new BitmapPool();
+
+    /* Oldest first. */
+    private final ArrayList<Bitmap> free = new ArrayList<>();
+    private long freeBytes = 0;
+
+    private BitmapPool() {
+    }
+
+    static BitmapPool get() {
+        return INSTANCE;
+    }
+
+    synchronized Bitmap acquire(int width, int height, Bitmap.Config config) {
+        for (int i = free.size() - 1; i >= 0; i--) {
+            Bitmap bitmap = free.get(i);
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height && bitmap.getConfig() == config) {
+                free.remove(i);
+                freeBytes -= bitmap.getByteCount();
+                return bitmap;
+            }
+        }
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    /**
+     * Hands a bitmap back, it must not be used by the caller afterwards.
+     */
+    synchronized void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        long bytes = bitmap.getByteCount();
+        if (bytes > MAX_FREE_BYTES) {
+            bitmap.recycle();
+            return;
+        }
+        while (freeBytes + bytes > MAX_FREE_BYTES) {
+            Bitmap oldest = free.remove(0);
+            freeBytes -= oldest.getByteCount();
+            oldest.recycle();
+        }
+        free.add(bitmap);
+        freeBytes += bytes;
+    }
+
+    /**
+     * Recycles all free bitmaps, bitmaps in use are not affected.
+     */
+    synchronized void trim() {
+        for (Bitmap bitmap : free) {
+            bitmap.recycle();
+        }
+        free.clear();
+        freeBytes = 0;
+    }
+}
@@ -0,0 +1,282 @@
+package sh.lrk.grid;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+import android.support.wearable.complications.ComplicationData;
+import android.support.wearable.complications.rendering.ComplicationDrawable;
+
+/**
+ * Renders the complications on a worker thread. Incoming {@link ComplicationData} is handed to a
+ * {@link ComplicationDrawable} per slot on the worker, which decodes and lays it out and draws it
+ * into a bitmap. The draw path only blits the latest bitmap of every slot.
+ * <p>
+ * Every slot has two bitmaps that change owners by message: the worker draws into its back
+ * bitmap and passes it to the main thread, which hands the previous front bitmap back. A bitmap
+ * is therefore never drawn into while a frame may still be using it.
+ */
+class ComplicationRenderer implements Handler.Callback {
+    static final int LEFT_COMPLICATION_ID = 0;
+    static final int RIGHT_COMPLICATION_ID = 1;
+    static final int BOTTOM_COMPLICATION_ID = 2;
+    static final int[] COMPLICATION_IDS = {LEFT_COMPLICATION_ID, RIGHT_COMPLICATION_ID, BOTTOM_COMPLICATION_ID};
+    static final int[] SUPPORTED_TYPES = {
+            ComplicationData.TYPE_RANGED_VALUE,
+            ComplicationData.TYPE_ICON,
+            ComplicationData.TYPE_SHORT_TEXT,
+            ComplicationData.TYPE_SMALL_IMAGE
+    };
+
+    /* Slot size and centers as fractions of the surface, below the clock and inside a round screen. */
+    private static final float SLOT_SIZE = 0.2f;
+    private static final float[] SLOT_CENTER_X = {0.25f, 0.75f, 0.5f};
+    private static final float[] SLOT_CENTER_Y = {0.7f, 0.7f, 0.82f};
+
+    interface Listener {
+        /**
+         * Called on the main thread when new complication bitmaps are ready within the bounds.
+         */
+        void onComplicationsRendered(Rect bounds);
+    }
+
+    private static final int MSG_SET_DATA = 0;
+    private static final int MSG_SET_SIZE = 1;
+    private static final int MSG_SET_AMBIENT = 2;
+    private static final int MSG_RENDER = 3;
+    private static final int MSG_RETURN_BITMAP = 4;
+    private static final int MSG_RELEASE = 5;
+
+    private final Context context;
+    private final Listener listener;
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /* Main thread. */
+    private final Rect[] bounds = new Rect[COMPLICATION_IDS.length];
+    private final Bitmap[] frontBitmaps = new Bitmap[COMPLICATION_IDS.length];
+    private final ComplicationData[] data = new ComplicationData[COMPLICATION_IDS.length];
+    private final Rect renderedBounds = new Rect();
+    private boolean releasedOnMain = false;
+
+    /* Worker thread. */
+    private final ComplicationDrawable[] drawables = new ComplicationDrawable[COMPLICATION_IDS.length];
+    private final Bitmap[] backBitmaps = new Bitmap[COMPLICATION_IDS.length];
+    /* Whether the main thread still has to hand back a bitmap, the slot can't be drawn until then. */
+    private final boolean[] awaitingBitmap = new boolean[COMPLICATION_IDS.length];
+    private final boolean[] renderPending = new boolean[COMPLICATION_IDS.length];
+    private final Canvas canvas = new Canvas();
+    private int slotSize = 0;
+    private boolean released = false;
+
+    ComplicationRenderer(Context context, Listener listener) {
+        this.context = context;
+        this.listener = listener;
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = new Rect();
+        }
+        thread = new HandlerThread("ComplicationRenderer");
+        thread.start();
+        handler = new Handler(thread.getLooper(), this);
+    }
+
+    void setComplicationData(int complicationId, ComplicationData complicationData) {
+        data[complicationId] = complicationData;
+        handler.obtainMessage(MSG_SET_DATA, complicationId, 0, complicationData).sendToTarget();
+    }
+
+    ComplicationData getComplicationData(int complicationId) {
+        return data[complicationId];
+    }
+
+    void setSurfaceSize(int width, int height) {
+        int size = Math.round(Math.min(width, height) * SLOT_SIZE);
+        for (int i = 0; i < bounds.length; i++) {
+            int left = Math.round(width * SLOT_CENTER_X[i] - size / 2f);
+            int top = Math.round(height * SLOT_CENTER_Y[i] - size / 2f);
+            bounds[i].set(left, top, left + size, top + size);
+        }
+        handler.obtainMessage(MSG_SET_SIZE, size, 0).sendToTarget();
+    }
+
+    void setAmbientMode(boolean ambient, boolean lowBitAmbient, boolean burnInProtection) {
+        int flags = (ambient ? 1 : 0) | (lowBitAmbient ? 2 : 0) | (burnInProtection ? 4 : 0);
+        handler.obtainMessage(MSG_SET_AMBIENT, flags, 0).sendToTarget();
+    }
+
+    /**
+     * Renders all slots again, e.g. once a minute for complications showing relative times.
+     */
+    void renderAll() {
+        for (int i = 0; i < COMPLICATION_IDS.length; i++) {
+            handler.obtainMessage(MSG_RENDER, i, 0).sendToTarget();
+        }
+    }
+
+    /**
+     * The id of the complication at the given position, -1 if there is none.
+     */
+    int findComplication(int x, int y) {
+        for (int i = 0; i < bounds.length; i++) {
+            if (data[i] != null && bounds[i].contains(x, y)) {
+                return COMPLICATION_IDS[i];
+            }
+        }
+        return -1;
+    }
+
+    void draw(Canvas canvas) {
+        for (int i = 0; i < frontBitmaps.length; i++) {
+            if (frontBitmaps[i] != null) {
+                canvas.drawBitmap(frontBitmaps[i], bounds[i].left, bounds[i].top, null);
+            }
+        }
+    }
+
+    void release() {
+        releasedOnMain = true;
+        mainHandler.removeCallbacksAndMessages(null);
+        handler.sendEmptyMessage(MSG_RELEASE);
+        thread.quitSafely();
+        for (int i = 0; i < frontBitmaps.length; i++) {
+            if (frontBitmaps[i] != null) {
+                frontBitmaps[i].recycle();
+                frontBitmaps[i] = null;
+            }
+        }
+    }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+        if (released) {
+            return true;
+        }
+        switch (msg.what) {
+            case MSG_SET_DATA:
+                getDrawable(msg.arg1).setComplicationData((ComplicationData) msg.obj);
+                render(msg.arg1);
+                return true;
+            case MSG_SET_SIZE:
+                slotSize = msg.arg1;
+                for (int i = 0; i < drawables.length; i++) {
+                    getDrawable(i).setBounds(0, 0, slotSize, slotSize);
+                    render(i);
+                }
+                return true;
+            case MSG_SET_AMBIENT:
+                for (int i = 0; i < drawables.length; i++) {
+                    ComplicationDrawable drawable = getDrawable(i);
+                    drawable.setInAmbientMode((msg.arg1 & 1) != 0);
+                    drawable.setLowBitAmbient((msg.arg1 & 2) != 0);
+                    drawable.setBurnInProtection((msg.arg1 & 4) != 0);
+                    render(i);
+                }
+                return true;
+            case MSG_RENDER:
+                render(msg.arg1);
+                return true;
+            case MSG_RETURN_BITMAP:
+                backBitmaps[msg.arg1] = (Bitmap) msg.obj;
+                awaitingBitmap[msg.arg1] = false;
+                if (renderPending[msg.arg1]) {
+                    render(msg.arg1);
+                }
+                return true;
+            case MSG_RELEASE:
+                released = true;
+                for (int i = 0; i < backBitmaps.length; i++) {
+                    if (backBitmaps[i] != null) {
+                        backBitmaps[i].recycle();
+                        backBitmaps[i] = null;
+                    }
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private ComplicationDrawable getDrawable(int slot) {
+        if (drawables[slot] == null) {
+            ComplicationDrawable drawable = new ComplicationDrawable(context);
+            drawable.setBorderColorActive(Color.BLUE);
+            drawable.setRangedValuePrimaryColorActive(Color.BLUE);
+            drawable.setTextColorActive(Color.argb(180, 255, 255, 255));
+            drawable.setIconColorActive(Color.argb(180, 255, 255, 255));
+            /* Images are loaded asynchronously, draw again once they are in. */
+            drawable.setCallback(new Drawable.Callback() {
+                @Override
+                public void invalidateDrawable(Drawable who) {
+                    handler.obtainMessage(MSG_RENDER, slot, 0).sendToTarget();
+                }
+
+                @Override
+                public void scheduleDrawable(Drawable who, Runnable what, long when) {
+                    handler.postAtTime(what, who, when);
+                }
+
+                @Override
+                public void unscheduleDrawable(Drawable who, Runnable what) {
+                    handler.removeCallbacks(what, who);
+                }
+            });
+            drawables[slot] = drawable;
+        }
+        return drawables[slot];
+    }
+
+    /**
+     * Draws a slot into its back bitmap and passes that to the main thread. If the back bitmap is
+     * still out there, the slot is drawn when it comes back.
+     */
+    private void render(int slot) {
+        if (slotSize <= 0) {
+            return;
+        }
+        if (awaitingBitmap[slot]) {
+            renderPending[slot] = true;
+            return;
+        }
+        renderPending[slot] = false;
+        Bitmap bitmap = backBitmaps[slot];
+        if (bitmap == null || bitmap.getWidth() != slotSize) {
+            if (bitmap != null) {
+                bitmap.recycle();
+            }
+            bitmap = Bitmap.createBitmap(slotSize, slotSize, Bitmap.Config.ARGB_8888);
+        }
+        backBitmaps[slot] = null;
+        awaitingBitmap[slot] = true;
+
+        bitmap.eraseColor(Color.TRANSPARENT);
+        canvas.setBitmap(bitmap);
+        drawables[slot].draw(canvas, System.currentTimeMillis());
+        canvas.setBitmap(null);
+
+        Bitmap rendered = bitmap;
+        mainHandler.post(() -> publish(slot, rendered));
+    }
+
+    /**
+     * Main thread: makes the rendered bitmap the front one and returns the previous front bitmap
+     * to the worker, null for the very first one.
+     */
+    private void publish(int slot, Bitmap rendered) {
+        if (releasedOnMain) {
+            rendered.recycle();
+            return;
+        }
+        Bitmap previous = frontBitmaps[slot];
+        frontBitmaps[slot] = rendered;
+        handler.obtainMessage(MSG_RETURN_BITMAP, slot, 0, previous).sendToTarget();
+        renderedBounds.set(bounds[slot]);
+        listener.onComplicationsRendered(renderedBounds);
+    }
+}
@@ -0,0 +1,64 @@
+package sh.lrk.grid;
+
+import android.graphics.Rect;
+
+/**
+ * Tracks which part of the surface a frame has to redraw. A partial frame covers the clock as it
+ * was last drawn and as it is going to be drawn, plus whatever else changed since, e.g. the band
+ * of a grid that only moves along one axis. Everything outside keeps the pixels of the previous
+ * frame.
+ */
+class DamageTracker {
+    /* Above this share of the surface a partial frame isn't worth the extra lock. */
+    private static final float MAX_DIRTY_FRACTION = 0.75f;
+
+    private final Rect dirty = new Rect();
+    private final Rect drawnText = new Rect();
+    private boolean hasFrame = false;
+
+    /**
+     * Forgets the previous frame, e.g. after the surface changed or the face was hidden. The next
+     * frame has to be a full one.
+     */
+    void reset() {
+        hasFrame = false;
+    }
+
+    boolean canDrawPartial() {
+        return hasFrame;
+    }
+
+    /**
+     * Starts the dirty region of a partial frame with the old and the new clock bounds.
+     */
+    void beginFrame(Rect textBounds) {
+        dirty.set(drawnText);
+        dirty.union(textBounds);
+    }
+
+    void add(Rect bounds) {
+        dirty.union(bounds);
+    }
+
+    /**
+     * The dirty region of the current frame, null if it covers so much of the given surface that
+     * a full frame should be drawn instead.
+     */
+    Rect getDirty(int width, int height) {
+        if (!dirty.intersect(0, 0, width, height)) {
+            dirty.setEmpty();
+        }
+        if ((float) dirty.width() * dirty.height() > MAX_DIRTY_FRACTION * width * height) {
+            return null;
+        }
+        return dirty;
+    }
+
+    /**
+     * Records a drawn frame (partial or full) and where its clock ended up.
+     */
+    void frameDrawn(Rect textBounds) {
+        drawnText.set(textBounds);
+        hasFrame = true;
+    }
+}
@@ -0,0 +1,50 @@
+package sh.lrk.grid;
+
+import com.google.android.gms.wearable.DataEvent;
+import com.google.android.gms.wearable.DataEventBuffer;
+import com.google.android.gms.wearable.DataItem;
+import com.google.android.gms.wearable.DataMap;
+import com.google.android.gms.wearable.DataMapItem;
+
+import java.util.HashMap;
+
+/**
+ * Settings from the Wearable Data Layer. The phone puts a {@link DataMap} with the changed
+ * preferences at {@link #PATH_SETTINGS}, {@link SettingsSyncService} passes the data events on.
+ */
+class DataLayerSettingsTransport implements SettingsTransport {
+    static final String PATH_SETTINGS = "/gridface/settings";
+
+    private volatile Receiver receiver;
+
+    @Override
+    public void setReceiver(Receiver receiver) {
+        this.receiver = receiver;
+    }
+
+    /**
+     * Hands the changed settings items to the receiver. The buffer is only valid during the call,
+     * the values are copied out.
+     */
+    void onDataChanged(DataEventBuffer dataEvents) {
+        Receiver receiver = this.receiver;
+        if (receiver == null) {
+            return;
+        }
+        for (DataEvent event : dataEvents) {
+            if (event.getType() != DataEvent.TYPE_CHANGED) {
+                continue;
+            }
+            DataItem item = event.getDataItem();
+            if (!PATH_SETTINGS.equals(item.getUri().getPath())) {
+                continue;
+            }
+            DataMap dataMap = DataMapItem.fromDataItem(item).getDataMap();
+            HashMap<String, Object> values = new HashMap<>();
+            for (String key : dataMap.keySet()) {
+                values.put(key, dataMap.get(key));
+            }
+            receiver.onSettingsReceived(values);
+        }
+    }
+}
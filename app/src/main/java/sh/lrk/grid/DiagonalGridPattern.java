@@ -0,0 +1,45 @@
+package sh.lrk.grid;
+
+/**
+ * Orthogonal grid rotated by 45 degrees. The lines are spacing apart, which makes the pattern
+ * repeat every spacing * sqrt(2) along both axes.
+ */
+class DiagonalGridPattern extends TiledGridPattern {
+    private static final float SQRT_2 = (float) Math.sqrt(2);
+
+    private float period = 1f;
+
+    @Override
+    public float getPeriodX() {
+        return period;
+    }
+
+    @Override
+    public float getPeriodY() {
+        return period;
+    }
+
+    @Override
+    int getMaxLines(int width, int height, float spacing) {
+        return 2 * ((int) ((width + height) / (spacing * SQRT_2)) + 8);
+    }
+
+    @Override
+    void layout(int width, int height, float spacing) {
+        period = spacing * SQRT_2;
+        float top = -period;
+        float bottom = height + period;
+
+        /* Falling lines x + y = c. */
+        for (int k = -2, end = (int) Math.ceil((width + height) / period) + 2; k <= end; k++) {
+            float c = k * period;
+            addLine(c - top, top, c - bottom, bottom);
+        }
+        /* Rising lines x - y = c. */
+        for (int k = (int) Math.floor(-height / period) - 2, end = (int) Math.ceil(width / period) + 2;
+             k <= end; k++) {
+            float c = k * period;
+            addLine(c + top, top, c + bottom, bottom);
+        }
+    }
+}
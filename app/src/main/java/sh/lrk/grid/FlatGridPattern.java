@@ -0,0 +1,117 @@
+package sh.lrk.grid;
+
+import android.graphics.Rect;
+
+/**
+ * Evenly spaced orthogonal lines. The buffer is only rebuilt when the surface size or the spacing
+ * changes, moving the grid shifts the existing coordinates by the offset delta.
+ */
+class FlatGridPattern implements GridPattern {
+    private float[] points = new float[0];
+    private int horizontalLines = 0;
+    private int verticalLines = 0;
+    private int width = -1;
+    private int height = -1;
+    private float spacing = -1f;
+    private float offsetX = 0f;
+    private float offsetY = 0f;
+
+    @Override
+    public void resize(int width, int height, float spacing) {
+        if (width == this.width && height == this.height && spacing == this.spacing) {
+            return;
+        }
+        this.width = width;
+        this.height = height;
+        this.spacing = spacing;
+
+        /* With an offset in (-spacing, spacing) these are all lines that can be on screen. */
+        horizontalLines = (int) (height / spacing) + 2;
+        verticalLines = (int) (width / spacing) + 2;
+        int size = 4 * (horizontalLines + verticalLines);
+        if (points.length < size) {
+            points = new float[size];
+        }
+        resetPoints();
+    }
+
+    @Override
+    public void setOffset(float offsetX, float offsetY) {
+        float dx = offsetX - this.offsetX;
+        float dy = offsetY - this.offsetY;
+        if (Math.abs(dx) >= spacing || Math.abs(dy) >= spacing) {
+            /* The offset wrapped around, start over from the exact positions to avoid drift. */
+            resetPoints();
+            dx = offsetX;
+            dy = offsetY;
+        }
+        if (dy != 0) {
+            for (int i = 0, end = 4 * horizontalLines; i < end; i += 4) {
+                points[i + 1] += dy;
+                points[i + 3] += dy;
+            }
+        }
+        if (dx != 0) {
+            for (int i = 4 * horizontalLines, end = 4 * (horizontalLines + verticalLines); i < end; i += 4) {
+                points[i] += dx;
+                points[i + 2] += dx;
+            }
+        }
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+    }
+
+    @Override
+    public float getPeriodX() {
+        return spacing;
+    }
+
+    @Override
+    public float getPeriodY() {
+        return spacing;
+    }
+
+    @Override
+    public boolean isTranslational() {
+        return true;
+    }
+
+    @Override
+    public void getDirtyBounds(boolean movesX, boolean movesY, Rect bounds) {
+        if (movesX || movesY) {
+            bounds.set(0, 0, width, height);
+        } else {
+            bounds.setEmpty();
+        }
+    }
+
+    @Override
+    public float[] getPoints() {
+        return points;
+    }
+
+    @Override
+    public int getPointCount() {
+        return 4 * (horizontalLines + verticalLines);
+    }
+
+    private void resetPoints() {
+        int index = 0;
+        for (int i = 0; i < horizontalLines; i++) {
+            float y = i * spacing;
+            points[index++] = 0;
+            points[index++] = y;
+            points[index++] = width;
+            points[index++] = y;
+        }
+        for (int i = 0; i < verticalLines; i++) {
+            float x = i * spacing;
+            points[index++] = x;
+            points[index++] = 0;
+            points[index++] = x;
+            points[index++] = height;
+        }
+        offsetX = 0f;
+        offsetY = 0f;
+    }
+}
@@ -0,0 +1,124 @@
+package sh.lrk.grid;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+/**
+ * One period of a grid animation that isn't a plain translation, e.g. the perspective floor,
+ * pre-rendered into keyframes so a frame is a single blit without any line or shadow work. The
+ * offset range of each moving axis is sampled at evenly spaced keyframes, as many as fit into the
+ * memory budget but no more than one per pixel, and a frame shows the keyframe nearest to its
+ * offset. The motion is quantized to the keyframe spacing, a larger budget makes it smoother.
+ * <p>
+ * Keyframes are rendered the first time they're shown, so filling the atlas costs about one
+ * period of regular frames. A new paint or pattern only marks them stale, a new surface size,
+ * spacing or budget hands the bitmaps back to the {@link BitmapPool}.
+ */
+class FrameAtlas {
+    private static final Bitmap[] NO_KEYFRAMES = new Bitmap[0];
+    private static final boolean[] NONE_RENDERED = new boolean[0];
+
+    private Bitmap[] keyframes = NO_KEYFRAMES;
+    private boolean[] rendered = NONE_RENDERED;
+    private int framesX = 0;
+    private int framesY = 0;
+    private int width = -1;
+    private int height = -1;
+    private float periodX = -1f;
+    private float periodY = -1f;
+    private long budgetBytes = -1;
+    private boolean movesX = false;
+    private boolean movesY = false;
+
+    /**
+     * Lays out the keyframes for the resized pattern. Returns false if the budget doesn't hold
+     * at least two keyframes per moving axis, the frame has to be drawn directly then.
+     */
+    boolean prepare(GridPattern pattern, int width, int height, long budgetBytes,
+                    boolean movesX, boolean movesY) {
+        float periodX = pattern.getPeriodX();
+        float periodY = pattern.getPeriodY();
+        if (width == this.width && height == this.height && periodX == this.periodX
+                && periodY == this.periodY && budgetBytes == this.budgetBytes
+                && movesX == this.movesX && movesY == this.movesY) {
+            return keyframes.length > 0;
+        }
+        release();
+        this.width = width;
+        this.height = height;
+        this.periodX = periodX;
+        this.periodY = periodY;
+        this.budgetBytes = budgetBytes;
+        this.movesX = movesX;
+        this.movesY = movesY;
+
+        long frameBytes = 4L * width * height;
+        int maxFrames = frameBytes > 0 ? (int) Math.min(Integer.MAX_VALUE, budgetBytes / frameBytes) : 0;
+        /* Both axes moving share the budget evenly. */
+        int framesPerAxis = movesX && movesY ? (int) Math.sqrt(maxFrames) : maxFrames;
+        framesX = movesX ? Math.min(framesPerAxis, (int) Math.ceil(periodX)) : 1;
+        framesY = movesY ? Math.min(framesPerAxis, (int) Math.ceil(periodY)) : 1;
+        if (maxFrames < 1 || (movesX && framesX < 2) || (movesY && framesY < 2)) {
+            return false;
+        }
+        keyframes = new Bitmap[framesX * framesY];
+        rendered = new boolean[keyframes.length];
+        return true;
+    }
+
+    /**
+     * Blits the keyframe nearest to the offsets, rendering it with the pattern first if needed.
+     */
+    void draw(Canvas canvas, GridPattern pattern, Paint paint, float spacing, float offsetX, float offsetY) {
+        int indexX = keyframeIndex(offsetX, periodX, framesX);
+        int indexY = keyframeIndex(offsetY, periodY, framesY);
+        int index = indexY * framesX + indexX;
+        if (keyframes[index] == null) {
+            keyframes[index] = BitmapPool.get().acquire(width, height, Bitmap.Config.ARGB_8888);
+            rendered[index] = false;
+        }
+        Bitmap keyframe = keyframes[index];
+        if (!rendered[index]) {
+            keyframe.eraseColor(Color.TRANSPARENT);
+            pattern.resize(width, height, spacing);
+            pattern.setOffset(indexX * periodX / framesX, indexY * periodY / framesY);
+            new Canvas(keyframe).drawLines(pattern.getPoints(), 0, pattern.getPointCount(), paint);
+            rendered[index] = true;
+        }
+        canvas.drawBitmap(keyframe, 0, 0, null);
+    }
+
+    /**
+     * Marks all keyframes stale, they're rendered again into the same bitmaps.
+     */
+    void invalidate() {
+        for (int i = 0; i < rendered.length; i++) {
+            rendered[i] = false;
+        }
+    }
+
+    /**
+     * Hands the keyframes back to the pool. Called on every frame while the atlas is off, so
+     * it doesn't allocate.
+     */
+    void release() {
+        for (Bitmap keyframe : keyframes) {
+            BitmapPool.get().release(keyframe);
+        }
+        keyframes = NO_KEYFRAMES;
+        rendered = NONE_RENDERED;
+        width = -1;
+        height = -1;
+    }
+
+    private static int keyframeIndex(float offset, float period, int frames) {
+        if (frames <= 1 || period <= 0) {
+            return 0;
+        }
+        float phase = offset / period;
+        phase -= (float) Math.floor(phase);
+        return Math.round(phase * frames) % frames;
+    }
+}
@@ -0,0 +1,163 @@
+package sh.lrk.grid;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.Log;
+
+import java.util.Arrays;
+
+/**
+ * Records per-phase frame timings into fixed-size ring buffers of primitive longs, so
+ * recording a frame never allocates.
+ */
+class FrameProfiler {
+    static final int PHASE_BACKGROUND = 0;
+    static final int PHASE_GRID = 1;
+    static final int PHASE_TEXT = 2;
+    /* Pseudo phase covering the whole frame. */
+    static final int PHASE_FRAME = 3;
+    private static final int PHASE_COUNT = 4;
+    private static final String[] PHASE_NAMES = {"background", "grid", "text", "frame"};
+
+    private static final int CAPACITY = 256;
+    /* Refresh the overlay text roughly once a second at the default frame rate. */
+    private static final int OVERLAY_REFRESH_FRAMES = 32;
+
+    private final long[][] samples = new long[PHASE_COUNT][CAPACITY];
+    private final long[] scratch = new long[CAPACITY];
+    private long budgetNanos;
+    private int head = 0;
+    private int count = 0;
+    private long totalFrames = 0;
+    private long droppedFrames = 0;
+    /* Vsync slots the frame scheduler gave up after an overrun. */
+    private long skippedFrames = 0;
+    private long frameStart;
+    private long phaseStart;
+
+    private final StringBuilder overlayBuilder = new StringBuilder(64);
+    private final char[][] overlayLines = new char[PHASE_COUNT + 1][64];
+    private final int[] overlayLengths = new int[PHASE_COUNT + 1];
+
+    FrameProfiler(long budgetMs) {
+        this.budgetNanos = budgetMs * 1_000_000L;
+    }
+
+    /**
+     * Frames taking longer than this are counted as dropped.
+     */
+    void setFrameBudgetMs(long budgetMs) {
+        this.budgetNanos = budgetMs * 1_000_000L;
+    }
+
+    void beginFrame() {
+        frameStart = System.nanoTime();
+        phaseStart = frameStart;
+    }
+
+    void endPhase(int phase) {
+        long now = System.nanoTime();
+        samples[phase][head] = now - phaseStart;
+        phaseStart = now;
+    }
+
+    void endFrame() {
+        long frameNanos = System.nanoTime() - frameStart;
+        samples[PHASE_FRAME][head] = frameNanos;
+        if (frameNanos > budgetNanos) {
+            droppedFrames++;
+        }
+        totalFrames++;
+        head = (head + 1) % CAPACITY;
+        if (count < CAPACITY) {
+            count++;
+        }
+        if (totalFrames % OVERLAY_REFRESH_FRAMES == 1) {
+            updateOverlay();
+        }
+    }
+
+    void addSkippedFrames(long frames) {
+        skippedFrames += frames;
+    }
+
+    void reset() {
+        head = 0;
+        count = 0;
+        totalFrames = 0;
+        droppedFrames = 0;
+        skippedFrames = 0;
+        Arrays.fill(overlayLengths, 0);
+    }
+
+    /**
+     * Returns the given percentile (0-100) of the recorded samples of a phase in nanoseconds.
+     */
+    long percentile(int phase, int percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        System.arraycopy(samples[phase], 0, scratch, 0, count);
+        Arrays.sort(scratch, 0, count);
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return scratch[Math.max(0, Math.min(count - 1, index))];
+    }
+
+    long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    long getSkippedFrames() {
+        return skippedFrames;
+    }
+
+    long getTotalFrames() {
+        return totalFrames;
+    }
+
+    void drawOverlay(Canvas canvas, Paint paint, float x, float y) {
+        float lineHeight = paint.getTextSize() * 1.2f;
+        for (int i = 0; i < overlayLines.length; i++) {
+            canvas.drawText(overlayLines[i], 0, overlayLengths[i], x, y + i * lineHeight, paint);
+        }
+    }
+
+    void dump(String tag) {
+        if (totalFrames == 0) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder("Render stats (p50/p95/p99 in us):");
+        for (int phase = 0; phase < PHASE_COUNT; phase++) {
+            sb.append(' ').append(PHASE_NAMES[phase]).append('=');
+            appendPercentiles(sb, phase);
+        }
+        sb.append(" dropped=").append(droppedFrames).append('/').append(totalFrames);
+        sb.append(" skipped=").append(skippedFrames);
+        Log.i(tag, sb.toString());
+    }
+
+    private void updateOverlay() {
+        for (int phase = 0; phase < PHASE_COUNT; phase++) {
+            overlayBuilder.setLength(0);
+            overlayBuilder.append(PHASE_NAMES[phase]).append(' ');
+            appendPercentiles(overlayBuilder, phase);
+            copyOverlayLine(phase);
+        }
+        overlayBuilder.setLength(0);
+        overlayBuilder.append("dropped ").append(droppedFrames).append('/').append(totalFrames)
+                .append(" skipped ").append(skippedFrames);
+        copyOverlayLine(PHASE_COUNT);
+    }
+
+    private void appendPercentiles(StringBuilder sb, int phase) {
+        sb.append(percentile(phase, 50) / 1000).append('/')
+                .append(percentile(phase, 95) / 1000).append('/')
+                .append(percentile(phase, 99) / 1000);
+    }
+
+    private void copyOverlayLine(int line) {
+        int length = Math.min(overlayBuilder.length(), overlayLines[line].length);
+        overlayBuilder.getChars(0, length, overlayLines[line], 0);
+        overlayLengths[line] = length;
+    }
+}
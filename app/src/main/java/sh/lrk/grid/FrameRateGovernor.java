@@ -0,0 +1,100 @@
+package sh.lrk.grid;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * Picks the animation rate from the interaction, power and thermal state: full rate for a while
+ * after wrist-raise or a tap, then the idle rate, capped further while saving power or throttled
+ * and paused entirely in mute mode.
+ */
+class FrameRateGovernor {
+    interface Listener {
+        /**
+         * Called whenever the rate changes, 0 means the animation should pause.
+         */
+        void onFrameRateChanged(int fps);
+    }
+
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable boostTimeout = this::update;
+    private FrameRatePolicy policy;
+    private long boostUntilMs = 0;
+    private boolean muted = false;
+    private boolean powerSave = false;
+    private boolean batteryLow = false;
+    private boolean thermalThrottled = false;
+    private int frameRate = -1;
+
+    FrameRateGovernor(FrameRatePolicy policy, Listener listener) {
+        this.policy = policy;
+        this.listener = listener;
+    }
+
+    void setPolicy(FrameRatePolicy policy) {
+        this.policy = policy;
+        update();
+    }
+
+    /**
+     * Runs the animation at full rate for the policy's boost timeout.
+     */
+    void boost() {
+        boostUntilMs = SystemClock.uptimeMillis() + policy.boostTimeoutMs;
+        handler.removeCallbacks(boostTimeout);
+        handler.postAtTime(boostTimeout, boostUntilMs);
+        update();
+    }
+
+    void setMuted(boolean muted) {
+        this.muted = muted;
+        update();
+    }
+
+    void setPowerSave(boolean powerSave) {
+        this.powerSave = powerSave;
+        update();
+    }
+
+    void setBatteryLow(boolean batteryLow) {
+        this.batteryLow = batteryLow;
+        update();
+    }
+
+    void setThermalThrottled(boolean thermalThrottled) {
+        this.thermalThrottled = thermalThrottled;
+        update();
+    }
+
+    int getFrameRate() {
+        return Math.max(0, frameRate);
+    }
+
+    void release() {
+        handler.removeCallbacks(boostTimeout);
+    }
+
+    private void update() {
+        int rate = resolveFrameRate(SystemClock.uptimeMillis());
+        if (rate != frameRate) {
+            frameRate = rate;
+            listener.onFrameRateChanged(rate);
+        }
+    }
+
+    private int resolveFrameRate(long nowMs) {
+        if (muted) {
+            return 0;
+        }
+        int rate = (nowMs < boostUntilMs) ? policy.activeFps : policy.idleFps;
+        if (powerSave || batteryLow) {
+            rate = Math.min(rate, policy.saverFps);
+        }
+        if (thermalThrottled) {
+            rate = Math.min(rate, policy.thermalFps);
+        }
+        return rate;
+    }
+}
@@ -0,0 +1,46 @@
+package sh.lrk.grid;
+
+import android.content.SharedPreferences;
+
+import static sh.lrk.grid.GridPreferences.DEF_BOOST_TIMEOUT_S;
+import static sh.lrk.grid.GridPreferences.DEF_FRAME_RATE;
+import static sh.lrk.grid.GridPreferences.DEF_IDLE_FRAME_RATE;
+import static sh.lrk.grid.GridPreferences.DEF_SAVER_FRAME_RATE;
+import static sh.lrk.grid.GridPreferences.DEF_THERMAL_FRAME_RATE;
+import static sh.lrk.grid.GridPreferences.KEY_BOOST_TIMEOUT_S;
+import static sh.lrk.grid.GridPreferences.KEY_FRAME_RATE;
+import static sh.lrk.grid.GridPreferences.KEY_IDLE_FRAME_RATE;
+import static sh.lrk.grid.GridPreferences.KEY_SAVER_FRAME_RATE;
+import static sh.lrk.grid.GridPreferences.KEY_THERMAL_FRAME_RATE;
+
+/**
+ * The rates the {@link FrameRateGovernor} picks from, all in frames per second.
+ */
+final class FrameRatePolicy {
+    /* Rate right after wrist-raise or a tap. */
+    final int activeFps;
+    /* Rate once the boost timed out. */
+    final int idleFps;
+    final long boostTimeoutMs;
+    /* Cap while battery saver is on or the battery is low. */
+    final int saverFps;
+    /* Cap while the device reports thermal throttling. */
+    final int thermalFps;
+
+    FrameRatePolicy(int activeFps, int idleFps, long boostTimeoutMs, int saverFps, int thermalFps) {
+        this.activeFps = activeFps;
+        this.idleFps = Math.min(idleFps, activeFps);
+        this.boostTimeoutMs = boostTimeoutMs;
+        this.saverFps = saverFps;
+        this.thermalFps = thermalFps;
+    }
+
+    static FrameRatePolicy load(SharedPreferences preferences) {
+        return new FrameRatePolicy(
+                preferences.getInt(KEY_FRAME_RATE, DEF_FRAME_RATE),
+                preferences.getInt(KEY_IDLE_FRAME_RATE, DEF_IDLE_FRAME_RATE),
+                preferences.getInt(KEY_BOOST_TIMEOUT_S, DEF_BOOST_TIMEOUT_S) * 1000L,
+                preferences.getInt(KEY_SAVER_FRAME_RATE, DEF_SAVER_FRAME_RATE),
+                preferences.getInt(KEY_THERMAL_FRAME_RATE, DEF_THERMAL_FRAME_RATE));
+    }
+}
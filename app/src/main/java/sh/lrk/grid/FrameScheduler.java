@@ -0,0 +1,86 @@
+package sh.lrk.grid;
+
+import android.view.Choreographer;
+
+/**
+ * Vsync-aligned frame clock for the animation. Frames are requested from the {@link Choreographer}
+ * of the thread the scheduler was created on, at most at the target rate. If a frame overruns,
+ * the missed slots are skipped instead of being caught up in a burst.
+ */
+class FrameScheduler implements Choreographer.FrameCallback {
+    interface FrameListener {
+        void onFrame(long frameTimeNanos);
+    }
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+    /* About half a vsync at 60 Hz, so a frame lands on the vsync closest to its due time. */
+    private static final long SLACK_NANOS = 8 * NANOS_PER_MILLI;
+
+    private final Choreographer choreographer;
+    private final FrameListener listener;
+    private long frameIntervalNanos;
+    private long nextFrameNanos = 0;
+    private long skippedFrames = 0;
+    private boolean running = false;
+
+    FrameScheduler(FrameListener listener, int targetFps) {
+        this.choreographer = Choreographer.getInstance();
+        this.listener = listener;
+        setTargetFps(targetFps);
+    }
+
+    void setTargetFps(int targetFps) {
+        frameIntervalNanos = NANOS_PER_SECOND / Math.max(1, targetFps);
+    }
+
+    /**
+     * Slots skipped since the scheduler was created.
+     */
+    long getSkippedFrames() {
+        return skippedFrames;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        nextFrameNanos = 0;
+        choreographer.postFrameCallback(this);
+    }
+
+    void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        choreographer.removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) {
+            return;
+        }
+        if (nextFrameNanos == 0 || frameTimeNanos >= nextFrameNanos - SLACK_NANOS) {
+            if (nextFrameNanos == 0) {
+                nextFrameNanos = frameTimeNanos;
+            } else if (frameTimeNanos - nextFrameNanos >= frameIntervalNanos) {
+                /* The previous frame overran, drop the slots we missed and restart the cadence. */
+                skippedFrames += (frameTimeNanos - nextFrameNanos) / frameIntervalNanos;
+                nextFrameNanos = frameTimeNanos;
+            }
+            nextFrameNanos += frameIntervalNanos;
+            listener.onFrame(frameTimeNanos);
+        }
+        if (running) {
+            long delayMs = (nextFrameNanos - System.nanoTime() - SLACK_NANOS) / NANOS_PER_MILLI;
+            choreographer.postFrameCallbackDelayed(this, Math.max(0, delayMs));
+        }
+    }
+}
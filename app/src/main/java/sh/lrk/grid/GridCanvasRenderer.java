@@ -0,0 +1,201 @@
+package sh.lrk.grid;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.view.SurfaceHolder;
+
+import androidx.wear.watchface.CanvasType;
+import androidx.wear.watchface.DrawMode;
+import androidx.wear.watchface.Renderer;
+import androidx.wear.watchface.WatchState;
+import androidx.wear.watchface.style.CurrentUserStyleRepository;
+import androidx.wear.watchface.style.UserStyle;
+
+import java.time.ZonedDateTime;
+import java.util.Calendar;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Draws the face for {@link StyledGridWatchface} with the same painters as the legacy engine. The
+ * system schedules the frames: the interactive draw interval follows the frame rate settings, and
+ * ambient, mute and low battery are told through the render parameters instead of being tracked
+ * here.
+ * <p>
+ * The grid offset comes from the frame's time rather than the uptime, so previews and screenshots
+ * at a given time are the same frame.
+ */
+class GridCanvasRenderer extends Renderer.CanvasRenderer implements GridSettingsStore.Listener {
+    /* Without motion only the minute changes. */
+    private static final long STATIC_DRAW_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private final WatchState watchState;
+    private final CurrentUserStyleRepository userStyleRepository;
+    private final GridUserStyle userStyle;
+    private final SharedPreferences preferences;
+    private final GridSettingsStore settingsStore;
+    private final RenderResources resources;
+    private final Runnable typefaceLoaded = this::onTypefaceLoaded;
+    private final Calendar calendar = Calendar.getInstance();
+
+    private final GridPainter gridPainter;
+    private final TimePainter timePainter;
+    private final AmbientRenderer ambientRenderer;
+    private PaintSet paints;
+    private UserStyle storedStyle;
+    private DrawMode drawMode = DrawMode.INTERACTIVE;
+
+    GridCanvasRenderer(Context context, SurfaceHolder surfaceHolder, WatchState watchState,
+                       CurrentUserStyleRepository userStyleRepository, GridUserStyle userStyle,
+                       SharedPreferences preferences) {
+        super(surfaceHolder, userStyleRepository, watchState, CanvasType.HARDWARE,
+                1000L / GridPreferences.DEF_FRAME_RATE);
+        this.watchState = watchState;
+        this.userStyleRepository = userStyleRepository;
+        this.userStyle = userStyle;
+        this.preferences = preferences;
+        settingsStore = new GridSettingsStore(preferences);
+        resources = RenderResources.acquire(context);
+
+        ThemePaints themePaints = resources.getThemePaints(settingsStore.get().theme);
+        paints = themePaints.get(false, false, false, false);
+        gridPainter = new GridPainter(paints.grid, settingsStore);
+        gridPainter.setTileCacheEnabled(true);
+        timePainter = new TimePainter(textSize -> paints.getTextPaint(textSize));
+        timePainter.setLayerCacheEnabled(true);
+        timePainter.setUse24h(settingsStore.get().use24h);
+        ambientRenderer = new AmbientRenderer(themePaints.get(true, false, false, false));
+        ambientRenderer.setUse24h(settingsStore.get().use24h);
+        ambientRenderer.setPattern(settingsStore.get().pattern, settingsStore.get().lineCount);
+        settingsStore.addListener(this);
+        /* The preferences may have been changed by the config activity since the last style. */
+        storedStyle = pushUserStyle(settingsStore.get());
+        updateDrawInterval();
+        resources.loadTypeface(typefaceLoaded);
+    }
+
+    private void onTypefaceLoaded() {
+        updatePaintSets();
+        invalidate();
+    }
+
+    @Override
+    public void onSettingsChanged(GridSettings settings) {
+        Tracer.begin("GridCanvasRenderer.onSettingsChanged");
+        storedStyle = pushUserStyle(settings);
+        timePainter.setUse24h(settings.use24h);
+        gridPainter.invalidateTileCache();
+        ambientRenderer.setUse24h(settings.use24h);
+        ambientRenderer.setPattern(settings.pattern, settings.lineCount);
+        updatePaintSets();
+        updateDrawInterval();
+        invalidate();
+        Tracer.end();
+    }
+
+    @Override
+    public void render(Canvas canvas, Rect bounds, ZonedDateTime zonedDateTime) {
+        Tracer.begin("GridCanvasRenderer.render");
+        storeUserStyle();
+        DrawMode mode = getRenderParameters().getDrawMode();
+        if (mode != drawMode) {
+            drawMode = mode;
+            updatePaintSets();
+            updateDrawInterval();
+        }
+        calendar.setTimeZone(TimeZone.getTimeZone(zonedDateTime.getZone()));
+        calendar.setTimeInMillis(zonedDateTime.toInstant().toEpochMilli());
+        float centerX = bounds.exactCenterX();
+        float centerY = bounds.exactCenterY();
+
+        if (mode == DrawMode.AMBIENT) {
+            ambientRenderer.draw(canvas, calendar, centerX, centerY);
+        } else {
+            long frameTimeNanos = TimeUnit.SECONDS.toNanos(zonedDateTime.toEpochSecond())
+                    + zonedDateTime.getNano();
+            gridPainter.drawBackgroundLayer(canvas);
+            gridPainter.drawGridLayer(canvas, frameTimeNanos);
+            timePainter.drawTime(canvas, calendar, centerX, centerY);
+        }
+        Tracer.end();
+    }
+
+    @Override
+    public void renderHighlightLayer(Canvas canvas, Rect bounds, ZonedDateTime zonedDateTime) {
+        /* There are no complication slots to highlight, the editor only needs the tint. */
+        canvas.drawColor(getRenderParameters().getHighlightLayer().getBackgroundTint());
+    }
+
+    @Override
+    public void onDestroy() {
+        resources.cancelTypefaceLoad(typefaceLoaded);
+        settingsStore.removeListener(this);
+        settingsStore.release();
+        gridPainter.releaseTileCache();
+        timePainter.releaseLayerCache();
+        ambientRenderer.release();
+        resources.release();
+        super.onDestroy();
+    }
+
+    /**
+     * Writes a new user style to the preferences if it differs from them, the settings store
+     * reports it back like a change from the config activity.
+     */
+    private void storeUserStyle() {
+        UserStyle style = userStyleRepository.getUserStyle().getValue();
+        if (style != storedStyle) {
+            storedStyle = style;
+            if (!userStyle.matches(style, settingsStore.get())) {
+                userStyle.store(style, preferences);
+            }
+        }
+    }
+
+    /**
+     * Updates the user style to the settings if it differs from them, so the editor shows them.
+     */
+    private UserStyle pushUserStyle(GridSettings settings) {
+        UserStyle style = userStyleRepository.getUserStyle().getValue();
+        if (userStyle.matches(style, settings)) {
+            return style;
+        }
+        userStyleRepository.updateUserStyle(userStyle.fromSettings(style, settings));
+        return userStyleRepository.getUserStyle().getValue();
+    }
+
+    private void updatePaintSets() {
+        boolean muted = drawMode == DrawMode.MUTE;
+        boolean lowBitAmbient = watchState.hasLowBitAmbient();
+        boolean burnInProtection = watchState.hasBurnInProtection();
+        ThemePaints themePaints = resources.getThemePaints(settingsStore.get().theme);
+        ambientRenderer.setProperties(lowBitAmbient, burnInProtection);
+        ambientRenderer.setPaints(themePaints.get(true, muted, lowBitAmbient, burnInProtection));
+        PaintSet interactivePaints = themePaints.get(false, muted, lowBitAmbient, burnInProtection);
+        if (paints != interactivePaints) {
+            paints = interactivePaints;
+            gridPainter.setGridPaint(interactivePaints.grid);
+            timePainter.invalidateLayout();
+        }
+    }
+
+    /**
+     * The interactive frame interval for the current mode. Muted and static grids only need the
+     * minute, on low battery the saver rate applies.
+     */
+    private void updateDrawInterval() {
+        GridSettings settings = settingsStore.get();
+        long intervalMs;
+        if (drawMode == DrawMode.MUTE || (settings.dx == 0 && settings.dy == 0)) {
+            intervalMs = STATIC_DRAW_INTERVAL_MS;
+        } else if (drawMode == DrawMode.LOW_BATTERY_INTERACTIVE) {
+            intervalMs = 1000L / settings.frameRatePolicy.saverFps;
+        } else {
+            intervalMs = 1000L / settings.frameRatePolicy.activeFps;
+        }
+        setInteractiveDrawModeUpdateDelayMillis(intervalMs);
+        Tracer.counter("frame rate", 1000L / intervalMs);
+    }
+}
@@ -1,43 +1,91 @@
 package sh.lrk.grid;
 
 import android.app.Activity;
+import android.content.ComponentName;
+import android.content.Intent;
 import android.content.SharedPreferences;
 import android.graphics.Canvas;
-import android.graphics.Color;
 import android.graphics.Paint;
 import android.os.Bundle;
-import android.util.Log;
+import android.support.wearable.complications.ComplicationHelperActivity;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
+import android.view.View;
+import android.widget.Button;
 import android.widget.ImageButton;
 
-import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
-import static sh.lrk.grid.GridWatchface.KEY_ACTIVE_DIRECTION;
-import static sh.lrk.grid.GridWatchface.KEY_USE_24H;
-import static sh.lrk.grid.GridWatchface.PREFERENCES_NAME;
-import static sh.lrk.grid.GridWatchface.UPDATE_RATE_MS;
+import static sh.lrk.grid.GridPreferences.BOOST_TIMEOUTS_S;
+import static sh.lrk.grid.GridPreferences.DEF_BOOST_TIMEOUT_S;
+import static sh.lrk.grid.GridPreferences.DEF_EASING;
+import static sh.lrk.grid.GridPreferences.DEF_FRAME_ATLAS_MB;
+import static sh.lrk.grid.GridPreferences.DEF_FRAME_RATE;
+import static sh.lrk.grid.GridPreferences.DEF_GRID_PATTERN;
+import static sh.lrk.grid.GridPreferences.DEF_IDLE_FRAME_RATE;
+import static sh.lrk.grid.GridPreferences.DEF_LINE_COUNT;
+import static sh.lrk.grid.GridPreferences.DEF_RENDER_MODE;
+import static sh.lrk.grid.GridPreferences.DEF_SAVER_FRAME_RATE;
+import static sh.lrk.grid.GridPreferences.DEF_SPEED;
+import static sh.lrk.grid.GridPreferences.DEF_THERMAL_FRAME_RATE;
+import static sh.lrk.grid.GridPreferences.DEF_VALUES;
+import static sh.lrk.grid.GridPreferences.KEY_ACTIVE_DIRECTION;
+import static sh.lrk.grid.GridPreferences.KEY_BOOST_TIMEOUT_S;
+import static sh.lrk.grid.GridPreferences.FRAME_ATLAS_BUDGETS_MB;
+import static sh.lrk.grid.GridPreferences.FRAME_RATES;
+import static sh.lrk.grid.GridPreferences.KEY_DEBUG_OVERLAY;
+import static sh.lrk.grid.GridPreferences.KEY_EASING;
+import static sh.lrk.grid.GridPreferences.KEY_FRAME_ATLAS_MB;
+import static sh.lrk.grid.GridPreferences.KEY_FRAME_RATE;
+import static sh.lrk.grid.GridPreferences.KEY_GRID_PATTERN;
+import static sh.lrk.grid.GridPreferences.KEY_IDLE_FRAME_RATE;
+import static sh.lrk.grid.GridPreferences.KEY_LINE_COUNT;
+import static sh.lrk.grid.GridPreferences.KEY_RENDER_MODE;
+import static sh.lrk.grid.GridPreferences.KEY_SAVER_FRAME_RATE;
+import static sh.lrk.grid.GridPreferences.KEY_SPEED;
+import static sh.lrk.grid.GridPreferences.KEY_THEME_IMAGE;
+import static sh.lrk.grid.GridPreferences.KEY_THERMAL_FRAME_RATE;
+import static sh.lrk.grid.GridPreferences.LINE_COUNTS;
+import static sh.lrk.grid.GridPreferences.LOW_FRAME_RATES;
+import static sh.lrk.grid.GridPreferences.KEY_USE_24H;
+import static sh.lrk.grid.GridPreferences.PREFERENCES_NAME;
+import static sh.lrk.grid.GridPreferences.SPEEDS;
 
 /**
  * Copied from the codelabs example, modified. So it's Apache2.
  *
  * @author Lukas Fülling (lukas@k40s.net)
  */
-public class GridConfigActivity extends Activity {
-    private static final String TAG = "ConfigActivity";
-    public static final HashSet<String> DEF_VALUES = new HashSet<>(Arrays.asList(
-            GridDirection.DOWN.name(),
-            GridDirection.RIGHT.name()));
-
+public class GridConfigActivity extends Activity implements GridSettingsStore.Listener {
+    private static final int REQUEST_COMPLICATION_PROVIDER = 1;
+    private static final int REQUEST_THEME_IMAGE = 2;
     private SharedPreferences preferences;
+    private GridSettingsStore settingsStore;
     private ImageButton gridDirectionRight;
     private ImageButton gridDirectionLeft;
     private ImageButton gridDirectionUp;
     private ImageButton gridDirectionDown;
     private ImageButton ampmToggle;
-    private GridThread gridThread;
+    private ImageButton debugOverlayToggle;
+    private Button gridPatternToggle;
+    private Button lineCountToggle;
+    private Button speedToggle;
+    private Button easingToggle;
+    private Button renderModeToggle;
+    private Button themeToggle;
+    private Button frameRateToggle;
+    private Button idleFrameRateToggle;
+    private Button boostTimeoutToggle;
+    private Button saverFrameRateToggle;
+    private Button thermalFrameRateToggle;
+    private Button frameAtlasToggle;
+    private SurfaceHolder surfaceHolder;
+    private RenderLoop renderLoop;
+    private PreviewRenderer previewRenderer;
+    private RenderResources resources;
+    private ThemeExtractor themeExtractor;
+    private boolean resumed = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -46,6 +94,10 @@ public class GridConfigActivity extends Activity {
         setContentView(R.layout.activity_config);
 
         preferences = getSharedPreferences(PREFERENCES_NAME, MODE_PRIVATE);
+        settingsStore = new GridSettingsStore(preferences);
+        settingsStore.addListener(this);
+        resources = RenderResources.acquire(this);
+        themeExtractor = new ThemeExtractor(getContentResolver(), preferences);
 
         initBackground();
 
@@ -53,6 +105,64 @@ public class GridConfigActivity extends Activity {
         updateCheckboxState();
         ampmToggle.setOnClickListener(v -> toggleAmpm());
 
+        debugOverlayToggle = findViewById(R.id.debug_overlay_toggle);
+        updateDebugOverlayState();
+        debugOverlayToggle.setOnClickListener(v -> toggleDebugOverlay());
+
+        gridPatternToggle = findViewById(R.id.grid_pattern_toggle);
+        lineCountToggle = findViewById(R.id.line_count_toggle);
+        updatePatternState();
+        gridPatternToggle.setOnClickListener(v -> toggleGridPattern());
+        lineCountToggle.setOnClickListener(v -> {
+            cycleValue(KEY_LINE_COUNT, LINE_COUNTS, DEF_LINE_COUNT);
+            updatePatternState();
+        });
+
+        speedToggle = findViewById(R.id.speed_toggle);
+        easingToggle = findViewById(R.id.easing_toggle);
+        updateMotionState();
+        speedToggle.setOnClickListener(v -> {
+            cycleValue(KEY_SPEED, SPEEDS, DEF_SPEED);
+            updateMotionState();
+        });
+        easingToggle.setOnClickListener(v -> toggleEasing());
+
+        renderModeToggle = findViewById(R.id.render_mode_toggle);
+        updateRenderModeState();
+        renderModeToggle.setOnClickListener(v -> toggleRenderMode());
+
+        themeToggle = findViewById(R.id.theme_toggle);
+        updateThemeState();
+        themeToggle.setOnClickListener(v -> toggleTheme());
+
+        frameRateToggle = findViewById(R.id.frame_rate_toggle);
+        idleFrameRateToggle = findViewById(R.id.idle_frame_rate_toggle);
+        boostTimeoutToggle = findViewById(R.id.boost_timeout_toggle);
+        saverFrameRateToggle = findViewById(R.id.saver_frame_rate_toggle);
+        thermalFrameRateToggle = findViewById(R.id.thermal_frame_rate_toggle);
+        updateFrameRateState();
+        frameRateToggle.setOnClickListener(v -> cycleValue(KEY_FRAME_RATE, FRAME_RATES, DEF_FRAME_RATE));
+        idleFrameRateToggle.setOnClickListener(v -> cycleValue(KEY_IDLE_FRAME_RATE, LOW_FRAME_RATES, DEF_IDLE_FRAME_RATE));
+        boostTimeoutToggle.setOnClickListener(v -> cycleValue(KEY_BOOST_TIMEOUT_S, BOOST_TIMEOUTS_S, DEF_BOOST_TIMEOUT_S));
+        saverFrameRateToggle.setOnClickListener(v -> cycleValue(KEY_SAVER_FRAME_RATE, LOW_FRAME_RATES, DEF_SAVER_FRAME_RATE));
+        thermalFrameRateToggle.setOnClickListener(v -> cycleValue(KEY_THERMAL_FRAME_RATE, LOW_FRAME_RATES, DEF_THERMAL_FRAME_RATE));
+
+        frameAtlasToggle = findViewById(R.id.frame_atlas_toggle);
+        updateFrameAtlasState();
+        frameAtlasToggle.setOnClickListener(v -> cycleValue(KEY_FRAME_ATLAS_MB, FRAME_ATLAS_BUDGETS_MB, DEF_FRAME_ATLAS_MB));
+
+        if (!getResources().getBoolean(R.bool.legacy_watch_face_enabled)) {
+            /* The styled face has no complication slots, and the legacy face is disabled. */
+            findViewById(R.id.complications_text).setVisibility(View.GONE);
+            findViewById(R.id.complication_buttons).setVisibility(View.GONE);
+        }
+        findViewById(R.id.complication_left).setOnClickListener(v ->
+                chooseComplicationProvider(ComplicationRenderer.LEFT_COMPLICATION_ID));
+        findViewById(R.id.complication_bottom).setOnClickListener(v ->
+                chooseComplicationProvider(ComplicationRenderer.BOTTOM_COMPLICATION_ID));
+        findViewById(R.id.complication_right).setOnClickListener(v ->
+                chooseComplicationProvider(ComplicationRenderer.RIGHT_COMPLICATION_ID));
+
         gridDirectionRight = findViewById(R.id.grid_direction_right);
         gridDirectionRight.setOnClickListener(v -> toggleGrid(GridDirection.RIGHT));
         gridDirectionLeft = findViewById(R.id.grid_direction_left);
@@ -64,8 +174,18 @@ public class GridConfigActivity extends Activity {
         updateGridControlState();
     }
 
+    /**
+     * Opens the system's provider chooser for the given slot, the watch face gets the new data
+     * through onComplicationDataUpdate.
+     */
+    private void chooseComplicationProvider(int complicationId) {
+        startActivityForResult(ComplicationHelperActivity.createProviderChooserHelperIntent(this,
+                new ComponentName(this, GridWatchface.class), complicationId,
+                ComplicationRenderer.SUPPORTED_TYPES), REQUEST_COMPLICATION_PROVIDER);
+    }
+
     private void toggleGrid(GridDirection direction) {
-        Set<String> directions = preferences.getStringSet(KEY_ACTIVE_DIRECTION, DEF_VALUES);
+        Set<String> directions = new HashSet<>(preferences.getStringSet(KEY_ACTIVE_DIRECTION, DEF_VALUES));
         switch (direction) {
             case UP:
                 if (directions.contains(GridDirection.UP.name())) {
@@ -102,32 +222,64 @@ public class GridConfigActivity extends Activity {
             default:
                 break;
         }
+        /* The arrows follow once the store has reloaded, see onSettingsChanged. */
         preferences.edit().putStringSet(KEY_ACTIVE_DIRECTION, directions).apply();
-        updateGridControlState();
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        resumed = true;
+        updateRenderLoop();
+    }
+
+    @Override
+    protected void onPause() {
+        resumed = false;
+        updateRenderLoop();
+        super.onPause();
+    }
+
+    @Override
+    protected void onDestroy() {
+        settingsStore.removeListener(this);
+        settingsStore.release();
+        themeExtractor.release();
+        resources.release();
+        super.onDestroy();
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, Intent data) {
+        if (requestCode == REQUEST_THEME_IMAGE && resultCode == RESULT_OK && data != null && data.getData() != null) {
+            themeExtractor.extract(data.getData());
+        } else {
+            super.onActivityResult(requestCode, resultCode, data);
+        }
     }
 
     private void updateGridControlState() {
-        Set<String> activeDirections = preferences.getStringSet(KEY_ACTIVE_DIRECTION, DEF_VALUES);
+        GridSettings settings = settingsStore.get();
 
-        if (activeDirections.contains(GridDirection.RIGHT.name())) {
+        if (settings.hasDirection(GridDirection.RIGHT)) {
             gridDirectionRight.setImageDrawable(getDrawable(R.drawable.ic_keyboard_arrow_right_blue_24dp));
         } else {
             gridDirectionRight.setImageDrawable(getDrawable(R.drawable.ic_keyboard_arrow_right_white_24dp));
         }
 
-        if (activeDirections.contains(GridDirection.LEFT.name())) {
+        if (settings.hasDirection(GridDirection.LEFT)) {
             gridDirectionLeft.setImageDrawable(getDrawable(R.drawable.ic_keyboard_arrow_left_blue_24dp));
         } else {
             gridDirectionLeft.setImageDrawable(getDrawable(R.drawable.ic_keyboard_arrow_left_white_24dp));
         }
 
-        if (activeDirections.contains(GridDirection.DOWN.name())) {
+        if (settings.hasDirection(GridDirection.DOWN)) {
             gridDirectionDown.setImageDrawable(getDrawable(R.drawable.ic_keyboard_arrow_down_blue_24dp));
         } else {
             gridDirectionDown.setImageDrawable(getDrawable(R.drawable.ic_keyboard_arrow_down_white_24dp));
         }
 
-        if (activeDirections.contains(GridDirection.UP.name())) {
+        if (settings.hasDirection(GridDirection.UP)) {
             gridDirectionUp.setImageDrawable(getDrawable(R.drawable.ic_keyboard_arrow_up_blue_24dp));
         } else {
             gridDirectionUp.setImageDrawable(getDrawable(R.drawable.ic_keyboard_arrow_up_white_24dp));
@@ -149,46 +301,201 @@ public class GridConfigActivity extends Activity {
         }
     }
 
-    private class GridThread extends Thread {
-        private final SurfaceHolder surfaceHolder;
-        private boolean run;
-        private GridPainter gridPainter;
+    private void toggleDebugOverlay() {
+        boolean previousState = preferences.getBoolean(KEY_DEBUG_OVERLAY, false);
+        preferences.edit().putBoolean(KEY_DEBUG_OVERLAY, !previousState).apply();
+        updateDebugOverlayState();
+    }
 
-        GridThread(SurfaceHolder surfaceHolder) {
-            this.surfaceHolder = surfaceHolder;
-            run = true;
-            Paint gridPaint = new Paint();
-            gridPaint.setColor(Color.BLUE);
-            gridPainter = new GridPainter(gridPaint, preferences);
+    private void updateDebugOverlayState() {
+        boolean debugOverlay = preferences.getBoolean(KEY_DEBUG_OVERLAY, false);
+        if (debugOverlay) {
+            debugOverlayToggle.setImageDrawable(getDrawable(R.drawable.ic_check_box_white_24dp));
+        } else {
+            debugOverlayToggle.setImageDrawable(getDrawable(R.drawable.ic_check_box_outline_blank_white_24dp));
+        }
+    }
+
+    private void toggleGridPattern() {
+        GridPatternType previousPattern = GridSettings.parsePattern(preferences.getString(KEY_GRID_PATTERN, DEF_GRID_PATTERN));
+        GridPatternType nextPattern = GridPatternType.values()[(previousPattern.ordinal() + 1) % GridPatternType.values().length];
+        preferences.edit().putString(KEY_GRID_PATTERN, nextPattern.name()).apply();
+        updatePatternState();
+    }
+
+    private void updatePatternState() {
+        GridPatternType pattern = GridSettings.parsePattern(preferences.getString(KEY_GRID_PATTERN, DEF_GRID_PATTERN));
+        switch (pattern) {
+            case PERSPECTIVE:
+                gridPatternToggle.setText(R.string.grid_pattern_perspective);
+                break;
+            case HEX:
+                gridPatternToggle.setText(R.string.grid_pattern_hex);
+                break;
+            case DIAGONAL:
+                gridPatternToggle.setText(R.string.grid_pattern_diagonal);
+                break;
+            case FLAT:
+            default:
+                gridPatternToggle.setText(R.string.grid_pattern_flat);
+                break;
         }
+        lineCountToggle.setText(getString(R.string.line_count_value,
+                preferences.getInt(KEY_LINE_COUNT, DEF_LINE_COUNT)));
+    }
 
-        void quit() {
-            this.run = false;
+    private void toggleEasing() {
+        MotionEasing previousEasing = GridSettings.parseEasing(preferences.getString(KEY_EASING, DEF_EASING));
+        MotionEasing nextEasing = MotionEasing.values()[(previousEasing.ordinal() + 1) % MotionEasing.values().length];
+        preferences.edit().putString(KEY_EASING, nextEasing.name()).apply();
+        updateMotionState();
+    }
+
+    private void updateMotionState() {
+        speedToggle.setText(getString(R.string.speed_value, preferences.getInt(KEY_SPEED, DEF_SPEED)));
+        MotionEasing easing = GridSettings.parseEasing(preferences.getString(KEY_EASING, DEF_EASING));
+        switch (easing) {
+            case EASE_IN_OUT:
+                easingToggle.setText(R.string.easing_ease_in_out);
+                break;
+            case EASE_OUT:
+                easingToggle.setText(R.string.easing_ease_out);
+                break;
+            case LINEAR:
+            default:
+                easingToggle.setText(R.string.easing_linear);
+                break;
         }
+    }
 
-        @Override
-        public void run() {
-            Canvas canvas = null;
-            while (run) {
-                try {
-                    canvas = surfaceHolder.lockCanvas();
-                    synchronized (surfaceHolder) {
-                        if (canvas != null) {
-                            gridPainter.drawGrid(canvas);
-                        }
-                    }
-                } finally {
-                    if (canvas != null) {
-                        surfaceHolder.unlockCanvasAndPost(canvas);
-                    }
-                }
-                try {
-                    Thread.sleep(UPDATE_RATE_MS);
-                } catch (InterruptedException e) {
-                    Log.e(TAG, "GridThread was interrupted!", e);
-                }
+    private void toggleRenderMode() {
+        RenderMode previousMode = GridSettings.parseRenderMode(preferences.getString(KEY_RENDER_MODE, DEF_RENDER_MODE));
+        RenderMode nextMode = RenderMode.values()[(previousMode.ordinal() + 1) % RenderMode.values().length];
+        preferences.edit().putString(KEY_RENDER_MODE, nextMode.name()).apply();
+        updateRenderModeState();
+    }
+
+    private void updateRenderModeState() {
+        RenderMode renderMode = GridSettings.parseRenderMode(preferences.getString(KEY_RENDER_MODE, DEF_RENDER_MODE));
+        switch (renderMode) {
+            case HARDWARE:
+                renderModeToggle.setText(R.string.render_mode_hardware);
+                break;
+            case PIPELINED:
+                renderModeToggle.setText(R.string.render_mode_pipelined);
+                break;
+            case SOFTWARE:
+            default:
+                renderModeToggle.setText(R.string.render_mode_software);
+                break;
+        }
+    }
+
+    /**
+     * Lets the user pick an image to take the colors from, or goes back to the default colors if
+     * they come from an image already. The colors are stored once extracted, the button follows
+     * through {@link #onSettingsChanged(GridSettings)}.
+     */
+    private void toggleTheme() {
+        if (preferences.contains(KEY_THEME_IMAGE)) {
+            themeExtractor.reset();
+        } else if (canPickThemeImage()) {
+            startActivityForResult(createThemeImageIntent(), REQUEST_THEME_IMAGE);
+        }
+    }
+
+    /**
+     * Most watches have no document picker, the default colors are all there is then.
+     */
+    private boolean canPickThemeImage() {
+        return createThemeImageIntent().resolveActivity(getPackageManager()) != null;
+    }
+
+    private static Intent createThemeImageIntent() {
+        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType("image/*");
+        return intent;
+    }
+
+    private void updateThemeState() {
+        if (preferences.contains(KEY_THEME_IMAGE)) {
+            themeToggle.setText(R.string.theme_image);
+            themeToggle.setEnabled(true);
+        } else {
+            themeToggle.setText(R.string.theme_default);
+            themeToggle.setEnabled(canPickThemeImage());
+        }
+    }
+
+    /**
+     * Stores the value following the current one in the given list of choices.
+     */
+    private void cycleValue(String key, int[] values, int defValue) {
+        int previousValue = preferences.getInt(key, defValue);
+        int nextValue = values[0];
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == previousValue) {
+                nextValue = values[(i + 1) % values.length];
+                break;
             }
         }
+        preferences.edit().putInt(key, nextValue).apply();
+        updateFrameRateState();
+        updateFrameAtlasState();
+    }
+
+    private void updateFrameRateState() {
+        frameRateToggle.setText(getString(R.string.frame_rate_value,
+                preferences.getInt(KEY_FRAME_RATE, DEF_FRAME_RATE)));
+        idleFrameRateToggle.setText(getString(R.string.frame_rate_value,
+                preferences.getInt(KEY_IDLE_FRAME_RATE, DEF_IDLE_FRAME_RATE)));
+        boostTimeoutToggle.setText(getString(R.string.boost_timeout_value,
+                preferences.getInt(KEY_BOOST_TIMEOUT_S, DEF_BOOST_TIMEOUT_S)));
+        saverFrameRateToggle.setText(getString(R.string.frame_rate_value,
+                preferences.getInt(KEY_SAVER_FRAME_RATE, DEF_SAVER_FRAME_RATE)));
+        thermalFrameRateToggle.setText(getString(R.string.frame_rate_value,
+                preferences.getInt(KEY_THERMAL_FRAME_RATE, DEF_THERMAL_FRAME_RATE)));
+    }
+
+    private void updateFrameAtlasState() {
+        int budgetMb = preferences.getInt(KEY_FRAME_ATLAS_MB, DEF_FRAME_ATLAS_MB);
+        if (budgetMb > 0) {
+            frameAtlasToggle.setText(getString(R.string.frame_atlas_value, budgetMb));
+        } else {
+            frameAtlasToggle.setText(R.string.frame_atlas_off);
+        }
+    }
+
+    private class PreviewRenderer implements RenderLoop.Renderer {
+        private final GridPainter gridPainter;
+
+        PreviewRenderer() {
+            gridPainter = new GridPainter(gridPaint(settingsStore.get()), settingsStore);
+            gridPainter.setTileCacheEnabled(true);
+        }
+
+        @Override
+        public void onSettingsChanged(GridSettings settings) {
+            gridPainter.setGridPaint(gridPaint(settings));
+            gridPainter.invalidateTileCache();
+        }
+
+        private Paint gridPaint(GridSettings settings) {
+            return resources.getThemePaints(settings.theme).get(false, false, false, false).grid;
+        }
+
+        @Override
+        public void render(Canvas canvas, long frameTimeNanos) {
+            Tracer.begin("GridConfigActivity.renderPreview");
+            gridPainter.drawBackgroundLayer(canvas);
+            gridPainter.drawGridLayer(canvas, frameTimeNanos);
+            Tracer.end();
+        }
+
+        void release() {
+            gridPainter.releaseTileCache();
+        }
     }
 
     private void initBackground() {
@@ -196,22 +503,58 @@ public class GridConfigActivity extends Activity {
         surface.getHolder().addCallback(new SurfaceHolder.Callback() {
             @Override
             public void surfaceCreated(SurfaceHolder holder) {
-                gridThread = new GridThread(surface.getHolder());
-                gridThread.start();
+                surfaceHolder = holder;
+                updateRenderLoop();
             }
 
             @Override
             public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
-                gridThread = new GridThread(surface.getHolder());
-                gridThread.start();
+                if (renderLoop != null) {
+                    renderLoop.requestRedraw();
+                }
             }
 
             @Override
             public void surfaceDestroyed(SurfaceHolder holder) {
-                gridThread.quit();
+                surfaceHolder = null;
+                updateRenderLoop();
             }
         });
     }
 
-}
+    /**
+     * Keeps exactly one render loop alive while the activity is resumed and the surface exists.
+     */
+    private void updateRenderLoop() {
+        boolean shouldRun = resumed && surfaceHolder != null;
+        if (shouldRun && renderLoop == null) {
+            previewRenderer = new PreviewRenderer();
+            renderLoop = new RenderLoop("GridPreview", surfaceHolder, previewRenderer, settingsStore.get());
+        } else if (!shouldRun && renderLoop != null) {
+            /* Blocks until the loop thread has drawn its last frame. */
+            renderLoop.quit();
+            renderLoop = null;
+            previewRenderer.release();
+            previewRenderer = null;
+        }
+    }
 
+    @Override
+    public void onSettingsChanged(GridSettings settings) {
+        Tracer.begin("GridConfigActivity.onSettingsChanged");
+        if (renderLoop != null) {
+            renderLoop.onSettingsChanged(settings);
+        }
+        /* Changes may come from the phone as well, so every control is refreshed. */
+        updateGridControlState();
+        updateCheckboxState();
+        updateDebugOverlayState();
+        updatePatternState();
+        updateMotionState();
+        updateRenderModeState();
+        updateThemeState();
+        updateFrameRateState();
+        updateFrameAtlasState();
+        Tracer.end();
+    }
+}
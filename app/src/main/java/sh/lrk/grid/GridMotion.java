@@ -0,0 +1,55 @@
+package sh.lrk.grid;
+
+/**
+ * Derives the grid offset from the frame time alone. The offset is the eased phase of the time
+ * within one pattern period, so any frame rate, or skipped frames, yields the same motion and
+ * drawing the same time twice gives the same picture.
+ * <p>
+ * Frame times are in nanoseconds on the {@link android.os.SystemClock#uptimeMillis()} clock, which
+ * is what {@link android.view.Choreographer} hands out and {@link System#nanoTime()} reads. The
+ * easing curve is sampled into a lookup table once, a frame only interpolates between two entries.
+ */
+class GridMotion {
+    private static final int TABLE_SIZE = 256;
+
+    private final float[] easingTable = new float[TABLE_SIZE + 1];
+    private MotionEasing easing;
+    private double speedPxPerNano;
+
+    GridMotion(MotionEasing easing, int speedPxPerSecond) {
+        setEasing(easing);
+        setSpeed(speedPxPerSecond);
+    }
+
+    void setEasing(MotionEasing easing) {
+        if (this.easing == easing) {
+            return;
+        }
+        this.easing = easing;
+        for (int i = 0; i <= TABLE_SIZE; i++) {
+            easingTable[i] = easing.apply((float) i / TABLE_SIZE);
+        }
+    }
+
+    void setSpeed(int speedPxPerSecond) {
+        speedPxPerNano = speedPxPerSecond / 1_000_000_000d;
+    }
+
+    /**
+     * The offset along one axis at the given time, within (-period, period).
+     *
+     * @param direction -1, 0 or 1
+     */
+    float getOffset(long frameTimeNanos, float period, int direction) {
+        if (direction == 0 || period <= 0) {
+            return 0f;
+        }
+        /* In double, float would lose the sub-pixel part after a few minutes of uptime. */
+        double cycles = frameTimeNanos * speedPxPerNano / period;
+        float phase = (float) (cycles - Math.floor(cycles)) * TABLE_SIZE;
+        int index = Math.min((int) phase, TABLE_SIZE - 1);
+        float fraction = phase - index;
+        float eased = easingTable[index] + (easingTable[index + 1] - easingTable[index]) * fraction;
+        return direction * eased * period;
+    }
+}
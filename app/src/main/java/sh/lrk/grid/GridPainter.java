@@ -1,24 +1,83 @@
 package sh.lrk.grid;
 
-import android.content.SharedPreferences;
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-
-import java.util.HashSet;
-import java.util.Set;
-
-import static sh.lrk.grid.GridConfigActivity.DEF_VALUES;
-import static sh.lrk.grid.GridWatchface.KEY_ACTIVE_DIRECTION;
+import android.graphics.Rect;
+import android.graphics.RecordingCanvas;
+import android.graphics.RenderNode;
+import android.os.Build;
 
 class GridPainter {
-    private int gridOffset = 0;
+    private float offsetX = 0;
+    private float offsetY = 0;
+    private final GridMotion motion = new GridMotion(MotionEasing.LINEAR, GridPreferences.DEF_SPEED);
     private Paint gridPaint;
-    private SharedPreferences preferences;
+    private GridSettingsStore settingsStore;
+    private GridPatternType patternType;
+    private GridPattern pattern;
 
-    GridPainter(Paint gridPaint, SharedPreferences preferences) {
+    /* Offscreen copy of the static grid, one pattern period larger than the screen on every side. */
+    private boolean tileCacheEnabled = false;
+    private Bitmap tileCache;
+    private RenderNode gridNode;
+    private GridPattern tilePattern;
+    private boolean tileCacheValid = false;
+    /* Keyframes of patterns that don't move by translation, only used with a budget set. */
+    private final FrameAtlas frameAtlas = new FrameAtlas();
+
+    GridPainter(Paint gridPaint, GridSettingsStore settingsStore) {
         this.gridPaint = gridPaint;
-        this.preferences = preferences;
+        this.settingsStore = settingsStore;
+    }
+
+    /**
+     * Enables or disables the pre-rendered grid tile. When enabled, the grid lines are only
+     * rasterized when the cache is (re)built and every frame is a single bitmap blit, or a
+     * translated RenderNode on hardware canvases. Patterns that don't move by translation are
+     * played back from a {@link FrameAtlas} if the settings give it a memory budget, and drawn
+     * directly otherwise.
+     */
+    void setTileCacheEnabled(boolean enabled) {
+        if (tileCacheEnabled != enabled) {
+            tileCacheEnabled = enabled;
+            releaseTileCache();
+        }
+    }
+
+    /**
+     * Switches to another grid paint, e.g. the muted one. Paints may be shared and are never
+     * modified here.
+     */
+    void setGridPaint(Paint gridPaint) {
+        if (this.gridPaint != gridPaint) {
+            this.gridPaint = gridPaint;
+            tileCacheValid = false;
+            frameAtlas.invalidate();
+        }
+    }
+
+    /**
+     * Marks the tile as stale, has to be called whenever the grid paint changes.
+     */
+    void invalidateTileCache() {
+        tileCacheValid = false;
+        frameAtlas.invalidate();
+    }
+
+    void releaseTileCache() {
+        if (tileCache != null) {
+            BitmapPool.get().release(tileCache);
+            tileCache = null;
+        }
+        if (gridNode != null) {
+            gridNode.discardDisplayList();
+            gridNode = null;
+        }
+        frameAtlas.release();
+        tileCacheValid = false;
     }
 
     void drawGrid(Canvas canvas) {
@@ -26,50 +85,173 @@ class GridPainter {
         drawGridLayer(canvas);
     }
 
-    private void drawGridLayer(Canvas canvas) {
+    void drawGridLayer(Canvas canvas) {
+        drawGridLayer(canvas, System.nanoTime());
+    }
+
+    /**
+     * Draws the grid with the animation advanced to the given frame time.
+     */
+    void drawGridLayer(Canvas canvas, long frameTimeNanos) {
+        updatePattern();
+        if (tileCacheEnabled && pattern.isTranslational()) {
+            drawCachedGridLayer(canvas, frameTimeNanos);
+        } else if (!tileCacheEnabled || !drawAtlasGridLayer(canvas, frameTimeNanos)) {
+            drawGridLines(canvas, frameTimeNanos);
+        }
+    }
+
+    float getOffsetX() {
+        return offsetX;
+    }
+
+    float getOffsetY() {
+        return offsetY;
+    }
+
+    /**
+     * Area of a surface of the given size that changes when the grid moves.
+     */
+    void getDirtyBounds(int width, int height, Rect bounds) {
+        updatePattern();
+        GridSettings settings = settingsStore.get();
+        pattern.resize(width, height, ((float) height) / settings.lineCount);
+        pattern.getDirtyBounds(settings.dx != 0, settings.dy != 0, bounds);
+    }
+
+    private void updatePattern() {
+        GridPatternType type = settingsStore.get().pattern;
+        if (type != patternType) {
+            patternType = type;
+            pattern = patternType.createPattern();
+            tilePattern = patternType.createPattern();
+            tileCacheValid = false;
+            frameAtlas.invalidate();
+        }
+    }
+
+    private void drawGridLines(Canvas canvas, long frameTimeNanos) {
         final int height = canvas.getHeight();
         final int width = canvas.getWidth();
 
-        int numLines = 10;
-        float gridSpacing = ((float) height) / numLines;
+        float gridSpacing = ((float) height) / settingsStore.get().lineCount;
+        pattern.resize(width, height, gridSpacing);
+        handleOffset(pattern.getPeriodX(), pattern.getPeriodY(), frameTimeNanos);
 
-        handleOffset(gridSpacing);
+        pattern.setOffset(offsetX, offsetY);
+        canvas.drawLines(pattern.getPoints(), 0, pattern.getPointCount(), gridPaint);
+    }
 
-        Set<String> directions = preferences.getStringSet(KEY_ACTIVE_DIRECTION, DEF_VALUES);
+    private void drawCachedGridLayer(Canvas canvas, long frameTimeNanos) {
+        final int height = canvas.getHeight();
+        final int width = canvas.getWidth();
 
-        //FIXME implement grid direction handling!
+        float gridSpacing = ((float) height) / settingsStore.get().lineCount;
+        /* Only used for the periods here, the tile has its own copy of the pattern. */
+        pattern.resize(width, height, gridSpacing);
+        float periodX = pattern.getPeriodX();
+        float periodY = pattern.getPeriodY();
+        handleOffset(periodX, periodY, frameTimeNanos);
 
-        float lineStart;
-        for (int i = 0; i < gridSpacing; i++) {
-            lineStart = i * gridSpacing;
+        int tileWidth = (int) Math.ceil(width + 2 * periodX);
+        int tileHeight = (int) Math.ceil(height + 2 * periodY);
 
-            float hStartX = gridOffset - gridSpacing;
-            float hStartY = ((directions.contains(GridDirection.DOWN.name())) ? gridOffset :
-                    (directions.contains(GridDirection.UP.name())) ? -gridOffset : 0) + lineStart;
-            float hStopX = (float) width + gridSpacing;
-            float hStopY = ((directions.contains(GridDirection.DOWN.name())) ? gridOffset :
-                    (directions.contains(GridDirection.UP.name())) ? -gridOffset : 0) + lineStart;
-            canvas.drawLine(hStartX, hStartY, hStopX, hStopY, gridPaint);
+        /* The direction only decides where the tile is blitted, so it never needs a rebuild. */
+        float tileX = offsetX - periodX;
+        float tileY = offsetY - periodY;
 
-            float vStartX = ((directions.contains(GridDirection.RIGHT.name())) ? gridOffset :
-                    (directions.contains(GridDirection.LEFT.name())) ? -gridOffset : 0) + lineStart;
-            float vStartY = (float) height + gridSpacing;
-            float vStopX = ((directions.contains(GridDirection.RIGHT.name())) ? gridOffset :
-                    (directions.contains(GridDirection.LEFT.name())) ? -gridOffset : 0) + lineStart;
-            float vStopY = gridOffset - gridSpacing;
-            canvas.drawLine(vStartX, vStartY, vStopX, vStopY, gridPaint);
+        if (canvas.isHardwareAccelerated()) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                drawGridNode(canvas, tileWidth, tileHeight, gridSpacing, tileX, tileY);
+            } else {
+                /* No public RenderNode before Q, the lines go straight to the GPU canvas. */
+                pattern.setOffset(offsetX, offsetY);
+                canvas.drawLines(pattern.getPoints(), 0, pattern.getPointCount(), gridPaint);
+            }
+            return;
         }
+
+        if (tileCache == null || tileCache.getWidth() != tileWidth || tileCache.getHeight() != tileHeight) {
+            releaseTileCache();
+            tileCache = BitmapPool.get().acquire(tileWidth, tileHeight, Bitmap.Config.ARGB_8888);
+        }
+        if (!tileCacheValid) {
+            tileCache.eraseColor(Color.TRANSPARENT);
+            drawTileLines(new Canvas(tileCache), tileWidth, tileHeight, gridSpacing);
+            tileCacheValid = true;
+        }
+
+        canvas.drawBitmap(tileCache, tileX, tileY, null);
     }
 
-    private void drawBackgroundLayer(Canvas canvas) {
-        canvas.drawColor(Color.BLACK);
+    /**
+     * Plays the grid back from the frame atlas, returns false if the atlas is off or its budget
+     * is too small for the surface.
+     */
+    private boolean drawAtlasGridLayer(Canvas canvas, long frameTimeNanos) {
+        GridSettings settings = settingsStore.get();
+        if (settings.frameAtlasBytes <= 0) {
+            frameAtlas.release();
+            return false;
+        }
+        final int height = canvas.getHeight();
+        final int width = canvas.getWidth();
+
+        float gridSpacing = ((float) height) / settings.lineCount;
+        pattern.resize(width, height, gridSpacing);
+        if (!frameAtlas.prepare(pattern, width, height, settings.frameAtlasBytes,
+                settings.dx != 0, settings.dy != 0)) {
+            return false;
+        }
+        handleOffset(pattern.getPeriodX(), pattern.getPeriodY(), frameTimeNanos);
+        /* The keyframes are rendered with the tile's copy, the pattern keeps its own offset. */
+        frameAtlas.draw(canvas, tilePattern, gridPaint, gridSpacing, offsetX, offsetY);
+        return true;
     }
 
-    private void handleOffset(float maxOffset) {
-        if (gridOffset < maxOffset - 1) {
-            gridOffset++;
-        } else if (gridOffset >= maxOffset - 1) {
-            gridOffset = 0;
+    /**
+     * Hardware canvases keep the tile as a retained display list instead of a bitmap, so a frame
+     * only updates the node's translation.
+     */
+    @TargetApi(Build.VERSION_CODES.Q)
+    private void drawGridNode(Canvas canvas, int tileWidth, int tileHeight, float gridSpacing,
+                              float tileX, float tileY) {
+        if (gridNode == null) {
+            gridNode = new RenderNode("grid");
+        }
+        if (!tileCacheValid || gridNode.getWidth() != tileWidth || gridNode.getHeight() != tileHeight) {
+            gridNode.setPosition(0, 0, tileWidth, tileHeight);
+            RecordingCanvas recordingCanvas = gridNode.beginRecording(tileWidth, tileHeight);
+            try {
+                drawTileLines(recordingCanvas, tileWidth, tileHeight, gridSpacing);
+            } finally {
+                gridNode.endRecording();
+            }
+            tileCacheValid = true;
         }
+        gridNode.setTranslationX(tileX);
+        gridNode.setTranslationY(tileY);
+        canvas.drawRenderNode(gridNode);
+    }
+
+    private void drawTileLines(Canvas tileCanvas, int tileWidth, int tileHeight, float gridSpacing) {
+        tilePattern.resize(tileWidth, tileHeight, gridSpacing);
+        tileCanvas.drawLines(tilePattern.getPoints(), 0, tilePattern.getPointCount(), gridPaint);
+    }
+
+    void drawBackgroundLayer(Canvas canvas) {
+        canvas.drawColor(Color.BLACK);
+    }
+
+    /**
+     * Sets the offsets for the given frame time, they only depend on the time and the settings,
+     * so the grid moves the same whatever the frame rate is.
+     */
+    private void handleOffset(float periodX, float periodY, long frameTimeNanos) {
+        GridSettings settings = settingsStore.get();
+        motion.setEasing(settings.easing);
+        motion.setSpeed(settings.speedPxPerSecond);
+        offsetX = motion.getOffset(frameTimeNanos, periodX, settings.dx);
+        offsetY = motion.getOffset(frameTimeNanos, periodY, settings.dy);
     }
 }
@@ -0,0 +1,53 @@
+package sh.lrk.grid;
+
+import android.graphics.Rect;
+
+/**
+ * Geometry of a grid pattern as a vertex buffer for a single
+ * {@link android.graphics.Canvas#drawLines(float[], int, int, android.graphics.Paint)} call.
+ * <p>
+ * Implementations lay out their geometry in {@link #resize(int, int, float)}, which must be a
+ * no-op as long as the surface and the spacing stay the same. Moving the pattern goes through
+ * {@link #setOffset(float, float)} and only updates the existing coordinates, nothing is
+ * rebuilt per frame.
+ */
+interface GridPattern {
+
+    /**
+     * Lays out the pattern for the given surface, a no-op if nothing changed.
+     */
+    void resize(int width, int height, float spacing);
+
+    /**
+     * Moves the pattern to the given offset, each axis within (-period, period).
+     */
+    void setOffset(float offsetX, float offsetY);
+
+    /**
+     * Distance along x after which the pattern looks the same again.
+     */
+    float getPeriodX();
+
+    /**
+     * Distance along y after which the pattern looks the same again.
+     */
+    float getPeriodY();
+
+    /**
+     * Whether moving the pattern is a plain translation of the whole picture. Only those can be
+     * drawn from a pre-rendered tile.
+     */
+    boolean isTranslational();
+
+    /**
+     * Area of the surface that changes when the pattern moves along the given axes.
+     */
+    void getDirtyBounds(boolean movesX, boolean movesY, Rect bounds);
+
+    float[] getPoints();
+
+    /**
+     * Number of floats in {@link #getPoints()} that make up the lines.
+     */
+    int getPointCount();
+}
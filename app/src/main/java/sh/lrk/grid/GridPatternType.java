@@ -0,0 +1,29 @@
+package sh.lrk.grid;
+
+/**
+ * The selectable grid patterns.
+ */
+public enum GridPatternType {
+    /* Evenly spaced orthogonal lines. */
+    FLAT,
+    /* Floor receding to a vanishing point. */
+    PERSPECTIVE,
+    /* Honeycomb of flat-topped hexagons. */
+    HEX,
+    /* Orthogonal grid rotated by 45 degrees. */
+    DIAGONAL;
+
+    GridPattern createPattern() {
+        switch (this) {
+            case PERSPECTIVE:
+                return new PerspectiveGridPattern();
+            case HEX:
+                return new HexGridPattern();
+            case DIAGONAL:
+                return new DiagonalGridPattern();
+            case FLAT:
+            default:
+                return new FlatGridPattern();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package sh.lrk.grid;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Names and defaults of the shared preferences. Kept free of framework types so the
+ * painters can be compiled and benchmarked on a plain JVM.
+ */
+final class GridPreferences {
+    static final String PREFERENCES_NAME = "gridface";
+    static final String KEY_ACTIVE_DIRECTION = "active_direction";
+    static final String KEY_USE_24H = "use_24h";
+    static final String KEY_DEBUG_OVERLAY = "debug_overlay";
+    static final String KEY_RENDER_MODE = "render_mode";
+    static final String KEY_FRAME_RATE = "frame_rate";
+    static final String KEY_IDLE_FRAME_RATE = "idle_frame_rate";
+    static final String KEY_BOOST_TIMEOUT_S = "boost_timeout_s";
+    static final String KEY_SAVER_FRAME_RATE = "saver_frame_rate";
+    static final String KEY_THERMAL_FRAME_RATE = "thermal_frame_rate";
+    static final String KEY_GRID_PATTERN = "grid_pattern";
+    static final String KEY_LINE_COUNT = "line_count";
+    static final String KEY_SPEED = "speed";
+    static final String KEY_EASING = "easing";
+    static final String KEY_FRAME_ATLAS_MB = "frame_atlas_mb";
+    /* Theme colors as ARGB ints, and the image they were extracted from if any. */
+    static final String KEY_THEME_GRID_COLOR = "theme_grid_color";
+    static final String KEY_THEME_GLOW_COLOR = "theme_glow_color";
+    static final String KEY_THEME_TEXT_COLOR = "theme_text_color";
+    static final String KEY_THEME_AMBIENT_COLOR = "theme_ambient_color";
+    static final String KEY_THEME_IMAGE = "theme_image";
+
+    static final Set<String> DEF_VALUES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            GridDirection.DOWN.name(),
+            GridDirection.RIGHT.name())));
+
+    static final String DEF_RENDER_MODE = RenderMode.SOFTWARE.name();
+    static final String DEF_GRID_PATTERN = GridPatternType.FLAT.name();
+
+    /* Selectable number of grid cells across the screen height, sets the grid spacing. */
+    static final int[] LINE_COUNTS = {6, 8, 10, 12, 16};
+    static final int DEF_LINE_COUNT = 10;
+
+    /* Selectable grid speeds in px per second, the default is the old one pixel per 30 ms frame. */
+    static final int[] SPEEDS = {15, 33, 60, 120};
+    static final int DEF_SPEED = 33;
+    static final String DEF_EASING = MotionEasing.LINEAR.name();
+
+    /* Selectable animation rates in frames per second. */
+    static final int[] FRAME_RATES = {60, 30, 15, 10};
+    static final int DEF_FRAME_RATE = 30;
+
+    /* Selectable rates for idle, battery saver and thermal throttling. */
+    static final int[] LOW_FRAME_RATES = {15, 10, 5, 2};
+    static final int DEF_IDLE_FRAME_RATE = 10;
+    static final int DEF_SAVER_FRAME_RATE = 5;
+    static final int DEF_THERMAL_FRAME_RATE = 2;
+
+    /* Selectable times in seconds the full rate is kept after wrist-raise or a tap. */
+    static final int[] BOOST_TIMEOUTS_S = {3, 5, 10, 30};
+    static final int DEF_BOOST_TIMEOUT_S = 5;
+
+    /* Selectable memory budgets of the frame atlas in MB, 0 draws every frame. */
+    static final int[] FRAME_ATLAS_BUDGETS_MB = {0, 2, 4, 8};
+    static final int DEF_FRAME_ATLAS_MB = 0;
+
+    private GridPreferences() {
+    }
+}
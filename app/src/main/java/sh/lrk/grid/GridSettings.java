@@ -0,0 +1,128 @@
+package sh.lrk.grid;
+
+import android.content.SharedPreferences;
+
+import java.util.Set;
+
+import static sh.lrk.grid.GridPreferences.DEF_EASING;
+import static sh.lrk.grid.GridPreferences.DEF_FRAME_ATLAS_MB;
+import static sh.lrk.grid.GridPreferences.DEF_GRID_PATTERN;
+import static sh.lrk.grid.GridPreferences.DEF_LINE_COUNT;
+import static sh.lrk.grid.GridPreferences.DEF_RENDER_MODE;
+import static sh.lrk.grid.GridPreferences.DEF_SPEED;
+import static sh.lrk.grid.GridPreferences.DEF_VALUES;
+import static sh.lrk.grid.GridPreferences.KEY_ACTIVE_DIRECTION;
+import static sh.lrk.grid.GridPreferences.KEY_DEBUG_OVERLAY;
+import static sh.lrk.grid.GridPreferences.KEY_EASING;
+import static sh.lrk.grid.GridPreferences.KEY_FRAME_ATLAS_MB;
+import static sh.lrk.grid.GridPreferences.KEY_GRID_PATTERN;
+import static sh.lrk.grid.GridPreferences.KEY_LINE_COUNT;
+import static sh.lrk.grid.GridPreferences.KEY_RENDER_MODE;
+import static sh.lrk.grid.GridPreferences.KEY_SPEED;
+import static sh.lrk.grid.GridPreferences.KEY_USE_24H;
+
+/**
+ * Immutable snapshot of the preferences, typed and preprocessed for the draw loop. The
+ * directions are kept as a bitmask and resolved into signed unit steps per axis, so drawing
+ * never touches strings or sets.
+ */
+final class GridSettings {
+    /* Directions as a bitmask of 1 << GridDirection.ordinal(). */
+    final int directions;
+    /* Signed unit steps of the grid motion, -1, 0 or 1 per axis. */
+    final int dx;
+    final int dy;
+    final boolean use24h;
+    final boolean debugOverlay;
+    final RenderMode renderMode;
+    final FrameRatePolicy frameRatePolicy;
+    final GridPatternType pattern;
+    /* Grid cells across the screen height, always positive. */
+    final int lineCount;
+    final int speedPxPerSecond;
+    final MotionEasing easing;
+    final Theme theme;
+    /* Memory the frame atlas may use, 0 if it's off. */
+    final long frameAtlasBytes;
+
+    private GridSettings(int directions, boolean use24h, boolean debugOverlay, RenderMode renderMode,
+                         FrameRatePolicy frameRatePolicy, GridPatternType pattern, int lineCount,
+                         int speedPxPerSecond, MotionEasing easing, Theme theme,
+                         long frameAtlasBytes) {
+        this.directions = directions;
+        this.dx = axisStep(directions, GridDirection.RIGHT, GridDirection.LEFT);
+        this.dy = axisStep(directions, GridDirection.DOWN, GridDirection.UP);
+        this.use24h = use24h;
+        this.debugOverlay = debugOverlay;
+        this.renderMode = renderMode;
+        this.frameRatePolicy = frameRatePolicy;
+        this.pattern = pattern;
+        this.lineCount = Math.max(1, lineCount);
+        this.speedPxPerSecond = speedPxPerSecond;
+        this.easing = easing;
+        this.theme = theme;
+        this.frameAtlasBytes = frameAtlasBytes;
+    }
+
+    static GridSettings load(SharedPreferences preferences) {
+        return new GridSettings(
+                toMask(preferences.getStringSet(KEY_ACTIVE_DIRECTION, DEF_VALUES)),
+                preferences.getBoolean(KEY_USE_24H, true),
+                preferences.getBoolean(KEY_DEBUG_OVERLAY, false),
+                parseRenderMode(preferences.getString(KEY_RENDER_MODE, DEF_RENDER_MODE)),
+                FrameRatePolicy.load(preferences),
+                parsePattern(preferences.getString(KEY_GRID_PATTERN, DEF_GRID_PATTERN)),
+                preferences.getInt(KEY_LINE_COUNT, DEF_LINE_COUNT),
+                preferences.getInt(KEY_SPEED, DEF_SPEED),
+                parseEasing(preferences.getString(KEY_EASING, DEF_EASING)),
+                Theme.load(preferences),
+                preferences.getInt(KEY_FRAME_ATLAS_MB, DEF_FRAME_ATLAS_MB) * 1024L * 1024L);
+    }
+
+    boolean hasDirection(GridDirection direction) {
+        return (directions & (1 << direction.ordinal())) != 0;
+    }
+
+    private static int toMask(Set<String> names) {
+        int mask = 0;
+        for (GridDirection direction : GridDirection.values()) {
+            if (names.contains(direction.name())) {
+                mask |= 1 << direction.ordinal();
+            }
+        }
+        return mask;
+    }
+
+    private static int axisStep(int directions, GridDirection positive, GridDirection negative) {
+        if ((directions & (1 << positive.ordinal())) != 0) {
+            return 1;
+        } else if ((directions & (1 << negative.ordinal())) != 0) {
+            return -1;
+        }
+        return 0;
+    }
+
+    static RenderMode parseRenderMode(String name) {
+        try {
+            return RenderMode.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return RenderMode.valueOf(DEF_RENDER_MODE);
+        }
+    }
+
+    static MotionEasing parseEasing(String name) {
+        try {
+            return MotionEasing.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return MotionEasing.valueOf(DEF_EASING);
+        }
+    }
+
+    static GridPatternType parsePattern(String name) {
+        try {
+            return GridPatternType.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return GridPatternType.valueOf(DEF_GRID_PATTERN);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package sh.lrk.grid;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Holds the current {@link GridSettings} snapshot and swaps it atomically whenever the
+ * preferences change. Render threads read {@link #get()} once per frame, owners that need to
+ * react to a change register a {@link Listener}.
+ * <p>
+ * Reloads are coalesced: the preferences report every changed key on its own, the store reloads
+ * once on the main thread after all keys of an edit have been reported. Listeners hear once per
+ * batch of changes instead of once per key.
+ */
+class GridSettingsStore implements SharedPreferences.OnSharedPreferenceChangeListener {
+    interface Listener {
+        /**
+         * Called on the main thread, once per batch of changed keys.
+         */
+        void onSettingsChanged(GridSettings settings);
+    }
+
+    private final SharedPreferences preferences;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile GridSettings settings;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable reload = this::reload;
+    private boolean reloadPending = false;
+
+    GridSettingsStore(SharedPreferences preferences) {
+        this.preferences = preferences;
+        this.settings = GridSettings.load(preferences);
+        /* SharedPreferences only keeps a weak reference, the owner keeps this store alive. */
+        preferences.registerOnSharedPreferenceChangeListener(this);
+    }
+
+    GridSettings get() {
+        return settings;
+    }
+
+    void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    void release() {
+        preferences.unregisterOnSharedPreferenceChangeListener(this);
+        handler.removeCallbacks(reload);
+        listeners.clear();
+    }
+
+    @Override
+    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+        synchronized (this) {
+            if (reloadPending) {
+                return;
+            }
+            reloadPending = true;
+        }
+        handler.post(reload);
+    }
+
+    private void reload() {
+        synchronized (this) {
+            reloadPending = false;
+        }
+        GridSettings updated = GridSettings.load(preferences);
+        settings = updated;
+        for (Listener listener : listeners) {
+            listener.onSettingsChanged(updated);
+        }
+    }
+}
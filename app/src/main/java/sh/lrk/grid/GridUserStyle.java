@@ -0,0 +1,161 @@
+package sh.lrk.grid;
+
+import android.content.SharedPreferences;
+import android.content.res.Resources;
+
+import androidx.wear.watchface.style.MutableUserStyle;
+import androidx.wear.watchface.style.UserStyle;
+import androidx.wear.watchface.style.UserStyleSchema;
+import androidx.wear.watchface.style.UserStyleSetting;
+import androidx.wear.watchface.style.UserStyleSetting.BooleanUserStyleSetting;
+import androidx.wear.watchface.style.UserStyleSetting.ListUserStyleSetting;
+import androidx.wear.watchface.style.WatchFaceLayer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static sh.lrk.grid.GridPreferences.KEY_ACTIVE_DIRECTION;
+import static sh.lrk.grid.GridPreferences.KEY_USE_24H;
+
+/**
+ * The user style of {@link StyledGridWatchface}: the grid's horizontal and vertical direction and
+ * the 24h clock. The preferences stay the source of the settings: a style change from the system's
+ * editor is written to them so the painters pick it up through the {@link GridSettingsStore}, and a
+ * change from the config activity is turned back into a style for the editor.
+ */
+final class GridUserStyle {
+    /* Option ids are the GridDirection names, "NONE" for no motion on that axis. */
+    private static final String NONE = "NONE";
+
+    final ListUserStyleSetting horizontal;
+    final ListUserStyleSetting vertical;
+    final BooleanUserStyleSetting use24h;
+    final UserStyleSchema schema;
+
+    GridUserStyle(Resources resources) {
+        List<WatchFaceLayer> layers = Collections.singletonList(WatchFaceLayer.BASE);
+        /* The first option is the default, they match GridPreferences.DEF_VALUES. */
+        horizontal = new ListUserStyleSetting(
+                new UserStyleSetting.Id("horizontal"),
+                resources.getString(R.string.style_horizontal),
+                resources.getString(R.string.style_horizontal_description),
+                null,
+                Arrays.asList(
+                        option(GridDirection.RIGHT.name(), resources.getString(R.string.style_direction_right)),
+                        option(GridDirection.LEFT.name(), resources.getString(R.string.style_direction_left)),
+                        option(NONE, resources.getString(R.string.style_direction_none))),
+                layers);
+        vertical = new ListUserStyleSetting(
+                new UserStyleSetting.Id("vertical"),
+                resources.getString(R.string.style_vertical),
+                resources.getString(R.string.style_vertical_description),
+                null,
+                Arrays.asList(
+                        option(GridDirection.DOWN.name(), resources.getString(R.string.style_direction_down)),
+                        option(GridDirection.UP.name(), resources.getString(R.string.style_direction_up)),
+                        option(NONE, resources.getString(R.string.style_direction_none))),
+                layers);
+        use24h = new BooleanUserStyleSetting(
+                new UserStyleSetting.Id("use_24h"),
+                resources.getString(R.string.ampm_toggle),
+                resources.getString(R.string.style_use_24h_description),
+                null,
+                layers,
+                true);
+        schema = new UserStyleSchema(Arrays.asList(horizontal, vertical, use24h));
+    }
+
+    private static ListUserStyleSetting.ListOption option(String id, String displayName) {
+        return new ListUserStyleSetting.ListOption(new UserStyleSetting.Option.Id(id), displayName, null);
+    }
+
+    /**
+     * Writes the settings of the style to the preferences in one edit.
+     */
+    void store(UserStyle style, SharedPreferences preferences) {
+        Set<String> directions = new HashSet<>();
+        addDirection(directions, style.get(horizontal));
+        addDirection(directions, style.get(vertical));
+        BooleanUserStyleSetting.BooleanOption use24hOption =
+                (BooleanUserStyleSetting.BooleanOption) style.get(use24h);
+        preferences.edit()
+                .putStringSet(KEY_ACTIVE_DIRECTION, directions)
+                .putBoolean(KEY_USE_24H, use24hOption == null || use24hOption.getValue())
+                .apply();
+    }
+
+    /**
+     * True if the style shows the motion and clock of the settings.
+     */
+    boolean matches(UserStyle style, GridSettings settings) {
+        BooleanUserStyleSetting.BooleanOption use24hOption =
+                (BooleanUserStyleSetting.BooleanOption) style.get(use24h);
+        return axisStep(style.get(horizontal), GridDirection.RIGHT, GridDirection.LEFT) == settings.dx
+                && axisStep(style.get(vertical), GridDirection.DOWN, GridDirection.UP) == settings.dy
+                && (use24hOption == null || use24hOption.getValue()) == settings.use24h;
+    }
+
+    /**
+     * The style with the motion and clock of the settings.
+     */
+    UserStyle fromSettings(UserStyle style, GridSettings settings) {
+        MutableUserStyle mutableStyle = style.toMutableUserStyle();
+        mutableStyle.set(horizontal, listOption(horizontal,
+                direction(settings.dx, GridDirection.RIGHT, GridDirection.LEFT)));
+        mutableStyle.set(vertical, listOption(vertical,
+                direction(settings.dy, GridDirection.DOWN, GridDirection.UP)));
+        for (UserStyleSetting.Option option : use24h.getOptions()) {
+            if (((BooleanUserStyleSetting.BooleanOption) option).getValue() == settings.use24h) {
+                mutableStyle.set(use24h, option);
+            }
+        }
+        return mutableStyle.toUserStyle();
+    }
+
+    private static String direction(int step, GridDirection positive, GridDirection negative) {
+        if (step > 0) {
+            return positive.name();
+        } else if (step < 0) {
+            return negative.name();
+        }
+        return NONE;
+    }
+
+    private static UserStyleSetting.Option listOption(ListUserStyleSetting setting, String id) {
+        for (UserStyleSetting.Option option : setting.getOptions()) {
+            if (id.equals(optionId(option))) {
+                return option;
+            }
+        }
+        throw new IllegalArgumentException("No option " + id);
+    }
+
+    private static int axisStep(UserStyleSetting.Option option, GridDirection positive,
+                                GridDirection negative) {
+        String id = option == null ? NONE : optionId(option);
+        if (positive.name().equals(id)) {
+            return 1;
+        } else if (negative.name().equals(id)) {
+            return -1;
+        }
+        return 0;
+    }
+
+    private static String optionId(UserStyleSetting.Option option) {
+        return new String(option.getId().getValue(), StandardCharsets.UTF_8);
+    }
+
+    private static void addDirection(Set<String> directions, UserStyleSetting.Option option) {
+        if (option == null) {
+            return;
+        }
+        String id = optionId(option);
+        if (!NONE.equals(id)) {
+            directions.add(id);
+        }
+    }
+}
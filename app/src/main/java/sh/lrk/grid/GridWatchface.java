@@ -1,6 +1,6 @@
 package sh.lrk.grid;
 
-import android.annotation.SuppressLint;
+import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
@@ -10,24 +10,27 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Rect;
-import android.graphics.Typeface;
+import android.os.BatteryManager;
+import android.os.Build;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Message;
+import android.os.PowerManager;
+import android.os.SystemClock;
 
+import android.support.wearable.complications.ComplicationData;
 import android.support.wearable.watchface.CanvasWatchFaceService;
 import android.support.wearable.watchface.WatchFaceService;
 import android.support.wearable.watchface.WatchFaceStyle;
-import android.text.TextPaint;
 import android.util.DisplayMetrics;
+import android.util.Log;
 import android.view.SurfaceHolder;
 
-import java.lang.ref.WeakReference;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
 
+import static sh.lrk.grid.GridPreferences.DEF_FRAME_RATE;
+import static sh.lrk.grid.GridPreferences.PREFERENCES_NAME;
+
 /*
    Copyright 2020 Lukas Fülling (lukas@k40s.net)
 
@@ -45,141 +48,268 @@ import java.util.concurrent.TimeUnit;
  */
 public class GridWatchface extends CanvasWatchFaceService {
 
-    static final String PREFERENCES_NAME = "gridface";
+    private static final String TAG = "GridWatchface";
     public static final long UPDATE_RATE_MS = TimeUnit.MILLISECONDS.toMillis(30);
-    public static final String KEY_ACTIVE_DIRECTION = "active_direction";
-    public static final String KEY_USE_24H = "use_24h";
-
-    /**
-     * Handler message id for updating the time periodically in interactive mode.
-     */
-    private static final int MSG_UPDATE_TIME = 0;
 
     @Override
     public Engine onCreateEngine() {
         return new Engine();
     }
 
-    private static class EngineHandler extends Handler {
-        private final WeakReference<GridWatchface.Engine> reference;
-
-        public EngineHandler(GridWatchface.Engine reference) {
-            this.reference = new WeakReference<>(reference);
-        }
-
-        @Override
-        public void handleMessage(Message msg) {
-            GridWatchface.Engine engine = reference.get();
-            if (engine != null) {
-                switch (msg.what) {
-                    case MSG_UPDATE_TIME:
-                        engine.handleUpdateTimeMessage();
-                        break;
-                }
-            }
-        }
-    }
-
     private class Engine extends CanvasWatchFaceService.Engine {
-        /* Handler to update the time once a second in interactive mode. */
-        private final Handler updateHandler = new EngineHandler(this);
+        /* Vsync-driven animation clock, only running in interactive mode. */
+        private FrameScheduler frameScheduler;
         private Calendar calendar;
         private final BroadcastReceiver timeZoneReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
                 calendar.setTimeZone(TimeZone.getDefault());
+                updatePainters(Engine.this::updatePainterTimeZone);
+                ambientRenderer.invalidate();
                 invalidate();
             }
         };
+        private final BroadcastReceiver powerReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                if (intent.getAction() == null) {
+                    return;
+                }
+                switch (intent.getAction()) {
+                    case PowerManager.ACTION_POWER_SAVE_MODE_CHANGED:
+                        frameRateGovernor.setPowerSave(powerManager.isPowerSaveMode());
+                        break;
+                    case Intent.ACTION_BATTERY_LOW:
+                        frameRateGovernor.setBatteryLow(true);
+                        break;
+                    case Intent.ACTION_BATTERY_OKAY:
+                        frameRateGovernor.setBatteryLow(false);
+                        break;
+                }
+            }
+        };
+        private PowerManager.OnThermalStatusChangedListener thermalListener;
         private boolean tzrRegistered = false;
+        private PowerManager powerManager;
+        private FrameRateGovernor frameRateGovernor;
         private boolean muteMode;
         private float centerX;
         private float centerY;
         private boolean ambientMode;
         private boolean lowBitAmbient;
         private boolean burnInProtection;
-        private Paint backgroundPaint;//TODO add property for this
-        private Paint gridPaint; //TODO add property for this
-        private TextPaint textPaint; //TODO add property for this
-        private boolean use24h;
-        private float textSize = 48f;
+        /* Typeface, paints and cache bitmaps shared with the other engines of the process. */
+        private RenderResources resources;
+        /* Interactive paints of the current mode, the render thread reads them as well. */
+        private volatile PaintSet paints;
         private GridPainter gridPainter;
-        private SharedPreferences preferences;
+        private TimePainter timePainter;
+        private AmbientRenderer ambientRenderer;
+        private ComplicationRenderer complicationRenderer;
+        /* Complication bitmaps that changed since the last frame. */
+        private final Rect complicationDamage = new Rect();
+        private GridSettingsStore settingsStore;
+        private final FrameProfiler profiler = new FrameProfiler(UPDATE_RATE_MS);
+        private long reportedSkippedFrames = 0;
+        private HardwareFrameRenderer hardwareRenderer;
+        /* In pipelined mode the painters belong to its worker, see updatePainters(). */
+        private PipelinedFrameRenderer pipelinedRenderer;
+        private Calendar pipelineCalendar;
+        private Paint debugPaint;
+        /* Partial redraws of the software surface, see redraw(). */
+        private final DamageTracker damageTracker = new DamageTracker();
+        private final Rect textBounds = new Rect();
+        private final Rect gridBounds = new Rect();
+        private int surfaceWidth;
+        private int surfaceHeight;
+        /* Time of the latest animation frame, the grid doesn't move in between. */
+        private long frameTimeNanos = System.nanoTime();
+        /* Startup measurement, from onCreate until the first frame is drawn, 0 once reported. */
+        private long createdNanos;
+        private final Runnable typefaceLoaded = this::onTypefaceLoaded;
 
         @Override
         public void onCreate(SurfaceHolder holder) {
+            createdNanos = SystemClock.elapsedRealtimeNanos();
+            Tracer.beginAsync("startup", Tracer.COOKIE_STARTUP);
             super.onCreate(holder);
 
-            setWatchFaceStyle(new WatchFaceStyle.Builder(GridWatchface.this).build());
+            setWatchFaceStyle(new WatchFaceStyle.Builder(GridWatchface.this)
+                    .setAcceptsTapEvents(true)
+                    .build());
 
             calendar = Calendar.getInstance();
-            preferences = getSharedPreferences(PREFERENCES_NAME, MODE_PRIVATE);
+            SharedPreferences preferences = getSharedPreferences(PREFERENCES_NAME, MODE_PRIVATE);
+            settingsStore = new GridSettingsStore(preferences);
+            settingsStore.addListener(this::onSettingsChanged);
 
             initializeWatchFace();
+            complicationRenderer = new ComplicationRenderer(GridWatchface.this, this::onComplicationsRendered);
+            setActiveComplications(ComplicationRenderer.COMPLICATION_IDS);
+            frameScheduler = new FrameScheduler(this::onAnimationFrame, DEF_FRAME_RATE);
+            powerManager = (PowerManager) getSystemService(POWER_SERVICE);
+            frameRateGovernor = new FrameRateGovernor(settingsStore.get().frameRatePolicy, this::onFrameRateChanged);
+
+            /* The render mode is fixed per engine, a surface can't switch between CPU and GPU. */
+            if (settingsStore.get().renderMode == RenderMode.HARDWARE) {
+                hardwareRenderer = new HardwareFrameRenderer(holder, canvas -> {
+                    drawFrame(canvas);
+                    onFrameDrawn();
+                });
+            } else if (settingsStore.get().renderMode == RenderMode.PIPELINED) {
+                pipelineCalendar = Calendar.getInstance();
+                pipelinedRenderer = new PipelinedFrameRenderer(this::renderPipelinedFrame, this::onPipelinedFrameReady);
+            }
         }
 
         private void initializeWatchFace() {
-            /* Set defaults for colors */
-            backgroundPaint = new Paint();
-            backgroundPaint.setColor(Color.BLACK);
-            gridPaint = new Paint();
-            gridPaint.setColor(Color.BLUE);
-            textPaint = new TextPaint();
-            textPaint.setColor(Color.argb(200, 255, 255, 255));
-            textPaint.setTextSize(textSize);
-            textPaint.setTypeface(Typeface.createFromAsset(getResources().getAssets(), "TRON.TTF"));
-            gridPainter = new GridPainter(gridPaint, preferences);
+            resources = RenderResources.acquire(GridWatchface.this);
+            debugPaint = new Paint();
+            debugPaint.setColor(Color.GREEN);
+            debugPaint.setTextSize(14f);
+            debugPaint.setTextAlign(Paint.Align.CENTER);
+            ThemePaints themePaints = resources.getThemePaints(settingsStore.get().theme);
+            paints = themePaints.get(false, false, false, false);
+            gridPainter = new GridPainter(paints.grid, settingsStore);
+            gridPainter.setTileCacheEnabled(true);
+            timePainter = new TimePainter(textSize -> paints.getTextPaint(textSize));
+            timePainter.setLayerCacheEnabled(true);
+            timePainter.setUse24h(settingsStore.get().use24h);
+            /* Until the typeface is in, frames go without the clock, ambient ones use the default font. */
+            ambientRenderer = new AmbientRenderer(themePaints.get(true, false, false, false));
+            ambientRenderer.setUse24h(settingsStore.get().use24h);
+            ambientRenderer.setPattern(settingsStore.get().pattern, settingsStore.get().lineCount);
+            resources.loadTypeface(typefaceLoaded);
+        }
+
+        private void onTypefaceLoaded() {
+            updatePaintSets();
+            if (createdNanos != 0) {
+                Log.i(TAG, "Typeface ready " + TimeUnit.NANOSECONDS.toMillis(
+                        SystemClock.elapsedRealtimeNanos() - createdNanos) + " ms after create");
+            }
+            invalidate();
+        }
+
+        /**
+         * Reports the time from onCreate to the end of the first frame once.
+         */
+        private void onFrameDrawn() {
+            if (createdNanos == 0) {
+                return;
+            }
+            Tracer.endAsync("startup", Tracer.COOKIE_STARTUP);
+            Log.i(TAG, "First frame drawn " + TimeUnit.NANOSECONDS.toMillis(
+                    SystemClock.elapsedRealtimeNanos() - createdNanos) + " ms after create");
+            createdNanos = 0;
         }
 
         @Override
         public void onDestroy() {
-            updateHandler.removeMessages(MSG_UPDATE_TIME);
+            frameScheduler.stop();
+            frameRateGovernor.release();
+            settingsStore.release();
+            if (hardwareRenderer != null) {
+                hardwareRenderer.cancel();
+            }
+            updatePainters(() -> {
+                gridPainter.releaseTileCache();
+                timePainter.releaseLayerCache();
+            });
+            if (pipelinedRenderer != null) {
+                pipelinedRenderer.release();
+            }
+            ambientRenderer.release();
+            complicationRenderer.release();
+            resources.cancelTypefaceLoad(typefaceLoaded);
+            resources.release();
             super.onDestroy();
         }
 
+        private void onSettingsChanged(GridSettings settings) {
+            Tracer.begin("GridWatchface.onSettingsChanged");
+            updatePainters(() -> {
+                timePainter.setUse24h(settings.use24h);
+                gridPainter.invalidateTileCache();
+            });
+            ambientRenderer.setUse24h(settings.use24h);
+            ambientRenderer.setPattern(settings.pattern, settings.lineCount);
+            frameRateGovernor.setPolicy(settings.frameRatePolicy);
+            updatePaintSets();
+            invalidate();
+            Tracer.end();
+        }
+
         @Override
         public void onPropertiesChanged(Bundle properties) {
             super.onPropertiesChanged(properties);
             lowBitAmbient = properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false);
             burnInProtection = properties.getBoolean(PROPERTY_BURN_IN_PROTECTION, false);
+            ambientRenderer.setProperties(lowBitAmbient, burnInProtection);
+            updatePaintSets();
+            complicationRenderer.setAmbientMode(ambientMode, lowBitAmbient, burnInProtection);
+        }
+
+        @Override
+        public void onComplicationDataUpdate(int complicationId, ComplicationData complicationData) {
+            /* Decoding and layout happen on the renderer's thread, the frame is redrawn once it's done. */
+            complicationRenderer.setComplicationData(complicationId, complicationData);
+        }
+
+        private void onComplicationsRendered(Rect bounds) {
+            complicationDamage.union(bounds);
+            redraw();
         }
 
         @Override
         public void onTimeTick() {
             super.onTimeTick();
-            invalidate();
+            /* Complications may show times relative to now. */
+            complicationRenderer.renderAll();
+            redraw();
         }
 
         @Override
         public void onAmbientModeChanged(boolean inAmbientMode) {
             super.onAmbientModeChanged(inAmbientMode);
+            Tracer.begin("GridWatchface.onAmbientModeChanged");
+            /* The interactive phases show up as slices between the ambient transitions. */
+            if (inAmbientMode) {
+                Tracer.endAsync("interactive", Tracer.COOKIE_INTERACTIVE);
+            } else {
+                Tracer.beginAsync("interactive", Tracer.COOKIE_INTERACTIVE);
+            }
             ambientMode = inAmbientMode;
+            damageTracker.reset();
+            complicationRenderer.setAmbientMode(inAmbientMode, lowBitAmbient, burnInProtection);
+            if (!inAmbientMode) {
+                /* Wrist-raise, the user is looking at the face. */
+                frameRateGovernor.boost();
+            }
 
-            updateWatchHandStyle();
+            if (inAmbientMode) {
+                ambientRenderer.invalidate();
+            }
 
             /* Check and trigger whether or not timer should be running (only in active mode). */
             updateTimer();
+            Tracer.end();
         }
 
-        private void updateWatchHandStyle() {
-            if (ambientMode) {
-                gridPaint.setColor(Color.rgb(50, 50, 50));
-                gridPaint.setAntiAlias(false);
-                gridPaint.clearShadowLayer();
-                backgroundPaint.setColor(Color.BLACK);
-                backgroundPaint.setAntiAlias(false);
-                backgroundPaint.clearShadowLayer();
-                textPaint.setAntiAlias(false);
-                textPaint.setColor(Color.argb(200, 255, 255, 255));
-            } else {
-                gridPaint.setColor(Color.BLUE);
-                gridPaint.setAntiAlias(true);
-                gridPaint.setShadowLayer(2f, 0, 0, Color.argb(255, 0, 0, 128));
-                backgroundPaint.setColor(Color.BLACK);
-                backgroundPaint.setAntiAlias(true);
-                backgroundPaint.clearShadowLayer();
-                textPaint.setAntiAlias(true);
-                textPaint.setColor(Color.argb(180, 255, 255, 255));
+        /**
+         * Picks the paint sets of the current theme for the current mode. The sets are immutable
+         * and switched by reference, ambient transitions don't touch any paint.
+         */
+        private void updatePaintSets() {
+            ThemePaints themePaints = resources.getThemePaints(settingsStore.get().theme);
+            ambientRenderer.setPaints(themePaints.get(true, muteMode, lowBitAmbient, burnInProtection));
+            PaintSet interactivePaints = themePaints.get(false, muteMode, lowBitAmbient, burnInProtection);
+            if (paints != interactivePaints) {
+                paints = interactivePaints;
+                updatePainters(() -> {
+                    gridPainter.setGridPaint(interactivePaints.grid);
+                    timePainter.invalidateLayout();
+                });
             }
         }
 
@@ -191,7 +321,9 @@ public class GridWatchface extends CanvasWatchFaceService {
             /* Dim display in mute mode. */
             if (muteMode != inMuteMode) {
                 muteMode = inMuteMode;
-                gridPaint.setAlpha(inMuteMode ? 80 : 255);
+                updatePaintSets();
+                /* Pauses the animation while muted. */
+                frameRateGovernor.setMuted(inMuteMode);
                 invalidate();
             }
         }
@@ -207,6 +339,16 @@ public class GridWatchface extends CanvasWatchFaceService {
              */
             centerX = width / 2f;
             centerY = height / 2f;
+            surfaceWidth = width;
+            surfaceHeight = height;
+            damageTracker.reset();
+            complicationRenderer.setSurfaceSize(width, height);
+            if (pipelinedRenderer != null) {
+                pipelinedRenderer.setSurfaceSize(width, height);
+            }
+
+            updatePainters(gridPainter::invalidateTileCache);
+            ambientRenderer.invalidate();
         }
 
         /**
@@ -224,40 +366,197 @@ public class GridWatchface extends CanvasWatchFaceService {
                     break;
                 case TAP_TYPE_TAP:
                     // The user has completed the tap gesture.
+                    frameRateGovernor.boost();
+                    onComplicationTap(x, y);
                     break;
             }
             invalidate();
         }
 
+        private void onComplicationTap(int x, int y) {
+            int complicationId = complicationRenderer.findComplication(x, y);
+            if (complicationId < 0) {
+                return;
+            }
+            ComplicationData complicationData = complicationRenderer.getComplicationData(complicationId);
+            PendingIntent tapAction = complicationData.getTapAction();
+            if (tapAction != null && complicationData.isActive(System.currentTimeMillis())) {
+                try {
+                    tapAction.send();
+                } catch (PendingIntent.CanceledException e) {
+                    Log.e(TAG, "Complication tap action was cancelled!", e);
+                }
+            }
+        }
+
+        @Override
+        public void invalidate() {
+            if (hardwareRenderer != null) {
+                hardwareRenderer.invalidate();
+            } else if (pipelinedRenderer != null && !ambientMode) {
+                /* Drawn once the frame is ready, see onPipelinedFrameReady(). */
+                pipelinedRenderer.requestFrame(frameTimeNanos);
+            } else {
+                super.invalidate();
+            }
+        }
+
+        private void onPipelinedFrameReady() {
+            if (!ambientMode) {
+                super.invalidate();
+            }
+        }
+
+        /**
+         * Applies a change to the painters. In pipelined mode they are only used by the render
+         * thread, the change is queued there in order with the frames.
+         */
+        private void updatePainters(Runnable update) {
+            if (pipelinedRenderer != null) {
+                pipelinedRenderer.post(update);
+            } else {
+                update.run();
+            }
+        }
+
+        /**
+         * Picks up a new default time zone on the thread using the painters.
+         */
+        private void updatePainterTimeZone() {
+            if (pipelineCalendar != null) {
+                pipelineCalendar.setTimeZone(TimeZone.getDefault());
+            }
+            timePainter.invalidateLayout();
+        }
+
+        /**
+         * Draws the interactive frame without overlays, on the render thread in pipelined mode.
+         */
+        private void renderPipelinedFrame(Canvas canvas, long frameTimeNanos) {
+            Tracer.begin("GridWatchface.renderPipelinedFrame");
+            pipelineCalendar.setTimeInMillis(System.currentTimeMillis());
+            gridPainter.drawBackgroundLayer(canvas);
+            drawGridLayer(canvas, frameTimeNanos);
+            drawTime(canvas, pipelineCalendar, canvas.getWidth() / 2f, canvas.getHeight() / 2f);
+            Tracer.end();
+        }
+
+        private void drawGridLayer(Canvas canvas, long frameTimeNanos) {
+            Tracer.begin("GridPainter.drawGridLayer");
+            gridPainter.drawGridLayer(canvas, frameTimeNanos);
+            Tracer.counter("grid offset x", (long) gridPainter.getOffsetX());
+            Tracer.counter("grid offset y", (long) gridPainter.getOffsetY());
+            Tracer.end();
+        }
+
+        private void drawTime(Canvas canvas, Calendar calendar, float centerX, float centerY) {
+            Tracer.begin("TimePainter.drawTime");
+            timePainter.drawTime(canvas, calendar, centerX, centerY);
+            Tracer.end();
+        }
+
+        @Override
+        public void onSurfaceRedrawNeeded(SurfaceHolder holder) {
+            if (hardwareRenderer != null) {
+                hardwareRenderer.draw();
+            } else {
+                super.onSurfaceRedrawNeeded(holder);
+            }
+        }
+
         @Override
         public void onDraw(Canvas canvas, Rect bounds) {
+            Tracer.begin("GridWatchface.onDraw");
+            drawFrame(canvas);
+            Tracer.end();
+            onFrameDrawn();
+        }
+
+        private void drawFrame(Canvas canvas) {
             long now = System.currentTimeMillis();
             calendar.setTimeInMillis(now);
-            gridPainter.drawGrid(canvas);
-            drawTime(canvas);
+
+            if (ambientMode) {
+                /* Once per minute, onTimeTick is the only thing invalidating in ambient. */
+                ambientRenderer.draw(canvas, calendar, centerX, centerY);
+                complicationRenderer.draw(canvas);
+                complicationDamage.setEmpty();
+                damageTracker.reset();
+                return;
+            }
+
+            profiler.beginFrame();
+            if (pipelinedRenderer != null) {
+                /* Grid and time were drawn ahead on the render thread, this is just the blit. */
+                if (!pipelinedRenderer.draw(canvas)) {
+                    canvas.drawColor(Color.BLACK);
+                }
+                profiler.endPhase(FrameProfiler.PHASE_BACKGROUND);
+            } else {
+                gridPainter.drawBackgroundLayer(canvas);
+                profiler.endPhase(FrameProfiler.PHASE_BACKGROUND);
+                drawGridLayer(canvas, frameTimeNanos);
+                profiler.endPhase(FrameProfiler.PHASE_GRID);
+                drawTime(canvas, calendar, centerX, centerY);
+            }
+            complicationRenderer.draw(canvas);
+            complicationDamage.setEmpty();
+            profiler.endPhase(FrameProfiler.PHASE_TEXT);
+            profiler.endFrame();
+
+            if (settingsStore.get().debugOverlay) {
+                profiler.drawOverlay(canvas, debugPaint, centerX, centerY / 3f);
+            }
+            if (pipelinedRenderer == null) {
+                timePainter.getBounds(textBounds);
+                damageTracker.frameDrawn(textBounds);
+            }
         }
 
-        private void drawTime(Canvas canvas) {
-            use24h = preferences.getBoolean(KEY_USE_24H, true);
-            String dateFormatString = (use24h) ? "HH:mm" : "hh:mm a";
-            textSize = canvas.getHeight() / ((use24h) ? 5f : 7f);
-            textPaint.setTextSize(textSize);
-            @SuppressLint("SimpleDateFormat") SimpleDateFormat simpleDateFormat = new SimpleDateFormat(dateFormatString);
-            String timeText = simpleDateFormat.format(calendar.getTime());
-            float textWidth = getTextWidth(timeText);
-            int textX = Math.round(centerX - (textWidth / 2));
-            int textY = Math.round(centerY + (textSize / 2));
-            canvas.drawText(timeText, textX, textY, textPaint);
+        /**
+         * Redraws after the time or the animation advanced. On the software surface only the
+         * changed region is locked and drawn when that is small enough, e.g. just the clock while
+         * the grid is paused. Anything else goes through a full {@link #invalidate()}.
+         */
+        private void redraw() {
+            if (hardwareRenderer != null || pipelinedRenderer != null || !drawPartialFrame()) {
+                invalidate();
+            }
         }
 
-        private float getTextWidth(String timeText) {
-            float[] widths = new float[timeText.length()]; // create array to hold char widths
-            textPaint.getTextWidths(timeText, widths); // get width of chars in text
-            float textWidth = 0;
-            for (float width : widths) {
-                textWidth += width;
+        private boolean drawPartialFrame() {
+            if (ambientMode || !isVisible() || !damageTracker.canDrawPartial()
+                    || settingsStore.get().debugOverlay) {
+                return false;
+            }
+            calendar.setTimeInMillis(System.currentTimeMillis());
+            timePainter.layout(calendar, surfaceHeight, centerX, centerY);
+            timePainter.getBounds(textBounds);
+            damageTracker.beginFrame(textBounds);
+            damageTracker.add(complicationDamage);
+            if (frameScheduler.isRunning()) {
+                gridPainter.getDirtyBounds(surfaceWidth, surfaceHeight, gridBounds);
+                damageTracker.add(gridBounds);
             }
-            return textWidth;
+            Rect dirty = damageTracker.getDirty(surfaceWidth, surfaceHeight);
+            if (dirty == null) {
+                return false;
+            }
+
+            /* The surface may grow the dirty rect, the canvas comes clipped to whatever it ends up as. */
+            SurfaceHolder holder = getSurfaceHolder();
+            Canvas canvas = holder.lockCanvas(dirty);
+            if (canvas == null) {
+                return false;
+            }
+            Tracer.begin("GridWatchface.drawPartialFrame");
+            try {
+                drawFrame(canvas);
+            } finally {
+                holder.unlockCanvasAndPost(canvas);
+                Tracer.end();
+            }
+            return true;
         }
 
         @Override
@@ -265,12 +564,17 @@ public class GridWatchface extends CanvasWatchFaceService {
             super.onVisibilityChanged(visible);
 
             if (visible) {
+                profiler.reset();
+                damageTracker.reset();
                 registerReceiver();
+                frameRateGovernor.boost();
                 /* Update time zone in case it changed while we weren't visible. */
                 calendar.setTimeZone(TimeZone.getDefault());
+                updatePainters(this::updatePainterTimeZone);
                 invalidate();
             } else {
                 unregisterReceiver();
+                profiler.dump(TAG);
             }
 
             /* Check and trigger whether or not timer should be running (only in active mode). */
@@ -284,6 +588,24 @@ public class GridWatchface extends CanvasWatchFaceService {
             tzrRegistered = true;
             IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
             GridWatchface.this.registerReceiver(timeZoneReceiver, filter);
+
+            IntentFilter powerFilter = new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+            powerFilter.addAction(Intent.ACTION_BATTERY_LOW);
+            powerFilter.addAction(Intent.ACTION_BATTERY_OKAY);
+            GridWatchface.this.registerReceiver(powerReceiver, powerFilter);
+
+            /* The broadcasts only report changes, pick up the current state as well. */
+            frameRateGovernor.setPowerSave(powerManager.isPowerSaveMode());
+            Intent batteryStatus = GridWatchface.this.registerReceiver(null,
+                    new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+            if (batteryStatus != null) {
+                frameRateGovernor.setBatteryLow(batteryStatus.getBooleanExtra(BatteryManager.EXTRA_BATTERY_LOW, false));
+            }
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                thermalListener = status ->
+                        frameRateGovernor.setThermalThrottled(status >= PowerManager.THERMAL_STATUS_MODERATE);
+                powerManager.addThermalStatusListener(thermalListener);
+            }
         }
 
         private void unregisterReceiver() {
@@ -292,37 +614,60 @@ public class GridWatchface extends CanvasWatchFaceService {
             }
             tzrRegistered = false;
             GridWatchface.this.unregisterReceiver(timeZoneReceiver);
+            GridWatchface.this.unregisterReceiver(powerReceiver);
+            if (thermalListener != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                powerManager.removeThermalStatusListener(thermalListener);
+                thermalListener = null;
+            }
         }
 
         /**
-         * Starts/stops the {@link #updateHandler} timer based on the state of the watch face.
+         * Starts/stops the {@link #frameScheduler} based on the state of the watch face.
          */
         private void updateTimer() {
-            updateHandler.removeMessages(MSG_UPDATE_TIME);
             if (shouldTimerBeRunning()) {
-                updateHandler.sendEmptyMessage(MSG_UPDATE_TIME);
+                frameScheduler.start();
+            } else {
+                frameScheduler.stop();
             }
         }
 
         /**
-         * Returns whether the {@link #updateHandler} timer should be running. The timer
-         * should only run in active mode.
+         * Returns whether the {@link #frameScheduler} should be running. The animation
+         * should only run in active mode and if the governor didn't pause it.
          */
         private boolean shouldTimerBeRunning() {
-            return isVisible() && !ambientMode;
+            return isVisible() && !ambientMode && frameRateGovernor.getFrameRate() > 0;
+        }
+
+        private void onFrameRateChanged(int fps) {
+            Tracer.counter("frame rate", fps);
+            if (fps > 0) {
+                frameScheduler.setTargetFps(fps);
+                profiler.setFrameBudgetMs(1000 / fps);
+            }
+            updateTimer();
         }
 
         /**
-         * Handle updating the time periodically in interactive mode.
+         * Draws a new animation frame, called by the {@link #frameScheduler} in interactive mode.
          */
-        private void handleUpdateTimeMessage() {
-            invalidate();
-            if (shouldTimerBeRunning()) {
-                long timeMs = System.currentTimeMillis();
-                long delayMs = UPDATE_RATE_MS
-                        - (timeMs % UPDATE_RATE_MS);
-                updateHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, delayMs);
+        private void onAnimationFrame(long frameTimeNanos) {
+            Tracer.begin("GridWatchface.onAnimationFrame");
+            this.frameTimeNanos = frameTimeNanos;
+            long skippedFrames = frameScheduler.getSkippedFrames();
+            if (skippedFrames != reportedSkippedFrames) {
+                profiler.addSkippedFrames(skippedFrames - reportedSkippedFrames);
+                reportedSkippedFrames = skippedFrames;
+                Tracer.counter("skipped frames", skippedFrames);
+            }
+            if (hardwareRenderer != null) {
+                /* Already on a vsync, don't wait for the next one. */
+                hardwareRenderer.draw();
+            } else {
+                redraw();
             }
+            Tracer.end();
         }
     }
 }
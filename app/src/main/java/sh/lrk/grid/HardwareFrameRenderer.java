@@ -0,0 +1,71 @@
+package sh.lrk.grid;
+
+import android.graphics.Canvas;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.Surface;
+import android.view.SurfaceHolder;
+
+/**
+ * Draws frames onto a hardware canvas locked directly on the engine's surface, bypassing the
+ * software canvas of {@link android.support.wearable.watchface.CanvasWatchFaceService}. Requests
+ * are coalesced to one frame per vsync, like the framework's own invalidate().
+ * <p>
+ * A surface must not be mixed with software locking, so the render mode is fixed for the lifetime
+ * of an engine.
+ */
+class HardwareFrameRenderer implements Choreographer.FrameCallback {
+    private static final String TAG = "HardwareFrameRenderer";
+
+    interface FrameDrawer {
+        void drawFrame(Canvas canvas);
+    }
+
+    private final SurfaceHolder surfaceHolder;
+    private final FrameDrawer frameDrawer;
+    private boolean frameRequested = false;
+
+    HardwareFrameRenderer(SurfaceHolder surfaceHolder, FrameDrawer frameDrawer) {
+        this.surfaceHolder = surfaceHolder;
+        this.frameDrawer = frameDrawer;
+    }
+
+    void invalidate() {
+        if (!frameRequested) {
+            frameRequested = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    void cancel() {
+        if (frameRequested) {
+            frameRequested = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameRequested = false;
+        draw();
+    }
+
+    void draw() {
+        Surface surface = surfaceHolder.getSurface();
+        if (surface == null || !surface.isValid()) {
+            return;
+        }
+        Canvas canvas;
+        try {
+            canvas = surface.lockHardwareCanvas();
+        } catch (IllegalStateException e) {
+            Log.e(TAG, "Unable to lock hardware canvas!", e);
+            return;
+        }
+        try {
+            frameDrawer.drawFrame(canvas);
+        } finally {
+            surface.unlockCanvasAndPost(canvas);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package sh.lrk.grid;
+
+/**
+ * Honeycomb of flat-topped hexagons, spacing is the height of a hexagon. Every hexagon only adds
+ * its top, upper left and lower left edge, the others belong to its neighbours.
+ */
+class HexGridPattern extends TiledGridPattern {
+    private static final float SQRT_3 = (float) Math.sqrt(3);
+
+    private float side = 1f;
+
+    @Override
+    public float getPeriodX() {
+        /* Two columns, after that the odd/even row shift repeats. */
+        return 3f * side;
+    }
+
+    @Override
+    public float getPeriodY() {
+        return side * SQRT_3;
+    }
+
+    @Override
+    int getMaxLines(int width, int height, float spacing) {
+        float side = spacing / SQRT_3;
+        int columns = (int) ((width + 6f * side) / (1.5f * side)) + 6;
+        int rows = (int) ((height + 2f * spacing) / spacing) + 6;
+        return 3 * columns * rows;
+    }
+
+    @Override
+    void layout(int width, int height, float spacing) {
+        side = spacing / SQRT_3;
+        float halfSide = side / 2f;
+        float halfHeight = spacing / 2f;
+        float columnWidth = 1.5f * side;
+        float periodX = getPeriodX();
+
+        int firstColumn = (int) Math.floor((-periodX - side) / columnWidth);
+        int lastColumn = (int) Math.ceil((width + periodX + side) / columnWidth);
+        int firstRow = (int) Math.floor((-spacing - halfHeight) / spacing) - 1;
+        int lastRow = (int) Math.ceil((height + spacing + halfHeight) / spacing);
+        for (int column = firstColumn; column <= lastColumn; column++) {
+            float cx = column * columnWidth;
+            float rowShift = (column & 1) != 0 ? halfHeight : 0f;
+            for (int row = firstRow; row <= lastRow; row++) {
+                float cy = row * spacing + rowShift;
+                addLine(cx - halfSide, cy - halfHeight, cx + halfSide, cy - halfHeight);
+                addLine(cx - side, cy, cx - halfSide, cy - halfHeight);
+                addLine(cx - halfSide, cy + halfHeight, cx - side, cy);
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package sh.lrk.grid;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stand-in for the Data Layer that delivers settings sent from the same process, so the sync can
+ * be driven without a paired phone, e.g. from the JVM tests.
+ */
+class InProcessSettingsTransport implements SettingsTransport {
+    private volatile Receiver receiver;
+
+    @Override
+    public void setReceiver(Receiver receiver) {
+        this.receiver = receiver;
+    }
+
+    /**
+     * Delivers the values on the calling thread, like a data event from the phone would be.
+     */
+    void send(Map<String, Object> values) {
+        Receiver receiver = this.receiver;
+        if (receiver != null) {
+            receiver.onSettingsReceived(new HashMap<>(values));
+        }
+    }
+}
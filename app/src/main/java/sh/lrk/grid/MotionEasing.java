@@ -0,0 +1,29 @@
+package sh.lrk.grid;
+
+/**
+ * How the grid moves within one pattern period.
+ */
+public enum MotionEasing {
+    /* Constant speed. */
+    LINEAR,
+    /* Accelerates and comes to rest at every period, a ticking motion. */
+    EASE_IN_OUT,
+    /* Starts fast and slows down towards the end of every period. */
+    EASE_OUT;
+
+    /**
+     * Maps a phase in [0, 1] to the eased phase in [0, 1].
+     */
+    float apply(float phase) {
+        switch (this) {
+            case EASE_IN_OUT:
+                return phase * phase * (3f - 2f * phase);
+            case EASE_OUT:
+                float inverse = 1f - phase;
+                return 1f - inverse * inverse * inverse;
+            case LINEAR:
+            default:
+                return phase;
+        }
+    }
+}
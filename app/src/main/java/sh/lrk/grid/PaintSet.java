@@ -0,0 +1,44 @@
+package sh.lrk.grid;
+
+import android.graphics.Paint;
+import android.text.TextPaint;
+
+import java.util.HashMap;
+
+/**
+ * The paints of one display mode of a theme, see {@link ThemePaints}. A set is never modified
+ * once built, switching modes means switching to another set, so a draw racing a mode change
+ * sees either the old or the new paints but never a mix.
+ */
+final class PaintSet {
+    final Paint grid;
+    /* Tint of the ambient frame, unused in interactive mode. */
+    final Paint frame;
+    /* Template for the clock paints, null while there's no typeface for this set. */
+    private final TextPaint text;
+    private final HashMap<Float, TextPaint> textPaints = new HashMap<>();
+
+    PaintSet(Paint grid, TextPaint text, Paint frame) {
+        this.grid = grid;
+        this.text = text;
+        this.frame = frame;
+    }
+
+    /**
+     * The clock paint for a text size, a {@link TimePainter.PaintSource}. Derived from the
+     * template once per size, null if the set has no clock paint yet.
+     */
+    synchronized TextPaint getTextPaint(float textSize) {
+        if (text == null) {
+            return null;
+        }
+        TextPaint paint = textPaints.get(textSize);
+        if (paint == null) {
+            paint = new TextPaint();
+            paint.set(text);
+            paint.setTextSize(textSize);
+            textPaints.put(textSize, paint);
+        }
+        return paint;
+    }
+}
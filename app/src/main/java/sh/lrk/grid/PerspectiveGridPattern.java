@@ -0,0 +1,140 @@
+package sh.lrk.grid;
+
+import android.graphics.Rect;
+
+/**
+ * Floor receding to a vanishing point on the horizon. Depth lines are spacing apart on the floor,
+ * the nearest one at depth 1 sits on the bottom edge, and rails run from the vanishing point to
+ * the bottom edge, spacing apart there.
+ * <p>
+ * The layout only precomputes the static parts, an offset update moves the rails' lower ends and
+ * recomputes one y coordinate per depth line. Moving along y travels over the floor, so this
+ * isn't a translation of the picture and can't be drawn from a tile, but it leaves everything
+ * above the horizon untouched.
+ */
+class PerspectiveGridPattern implements GridPattern {
+    /* Height of the horizon as a fraction of the surface height. */
+    private static final float HORIZON = 0.35f;
+    /* Lines closer than this are far below the surface, they are parked there. */
+    private static final float MIN_DEPTH = 0.05f;
+
+    private float[] points = new float[0];
+    private int rails = 0;
+    private int depthLines = 0;
+    private int width = -1;
+    private int height = -1;
+    private float spacing = -1f;
+    private float horizonY;
+    private float vanishingX;
+    private float offsetX = 0f;
+    private float offsetY = 0f;
+
+    @Override
+    public void resize(int width, int height, float spacing) {
+        if (width == this.width && height == this.height && spacing == this.spacing) {
+            return;
+        }
+        this.width = width;
+        this.height = height;
+        this.spacing = spacing;
+        horizonY = height * HORIZON;
+        vanishingX = width / 2f;
+
+        /* Rails on both sides of the center, one extra per side to cover any lateral offset. */
+        rails = 2 * ((int) (vanishingX / spacing) + 2) + 1;
+        /* One depth line in front of the bottom edge comes in view when moving backwards. */
+        depthLines = (int) (height / spacing) + 1;
+        int size = 4 * (rails + depthLines + 1);
+        if (points.length < size) {
+            points = new float[size];
+        }
+
+        int index = 0;
+        for (int i = 0; i < rails; i++) {
+            points[index++] = vanishingX;
+            points[index++] = horizonY;
+            index += 2;
+        }
+        for (int i = 0; i < depthLines; i++) {
+            points[index] = 0;
+            points[index + 2] = width;
+            index += 4;
+        }
+        points[index++] = 0;
+        points[index++] = horizonY;
+        points[index++] = width;
+        points[index] = horizonY;
+
+        updateRails();
+        updateDepthLines();
+    }
+
+    @Override
+    public void setOffset(float offsetX, float offsetY) {
+        if (offsetX != this.offsetX) {
+            this.offsetX = offsetX;
+            updateRails();
+        }
+        if (offsetY != this.offsetY) {
+            this.offsetY = offsetY;
+            updateDepthLines();
+        }
+    }
+
+    @Override
+    public float getPeriodX() {
+        return spacing;
+    }
+
+    @Override
+    public float getPeriodY() {
+        return spacing;
+    }
+
+    @Override
+    public boolean isTranslational() {
+        return false;
+    }
+
+    @Override
+    public void getDirtyBounds(boolean movesX, boolean movesY, Rect bounds) {
+        if (movesX) {
+            bounds.set(0, 0, width, height);
+        } else if (movesY) {
+            bounds.set(0, (int) Math.floor(horizonY), width, height);
+        } else {
+            bounds.setEmpty();
+        }
+    }
+
+    @Override
+    public float[] getPoints() {
+        return points;
+    }
+
+    @Override
+    public int getPointCount() {
+        return 4 * (rails + depthLines + 1);
+    }
+
+    private void updateRails() {
+        int firstRail = -(rails / 2);
+        for (int i = 0; i < rails; i++) {
+            int index = 4 * i;
+            points[index + 2] = vanishingX + (firstRail + i) * spacing + offsetX;
+            points[index + 3] = height;
+        }
+    }
+
+    private void updateDepthLines() {
+        float floorHeight = height - horizonY;
+        float travelled = offsetY / spacing;
+        for (int i = 0; i < depthLines; i++) {
+            int index = 4 * (rails + i);
+            float depth = i - travelled;
+            float y = depth > MIN_DEPTH ? horizonY + floorHeight / depth : height + spacing;
+            points[index + 1] = y;
+            points[index + 3] = y;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package sh.lrk.grid;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Process;
+
+/**
+ * Produces frames on a worker thread into two offscreen buffers, so the engine's thread only
+ * blits the latest one. While the main thread shows the front buffer, the worker draws the next
+ * frame into the back buffer; when it's done the buffers are swapped and the listener is told to
+ * invalidate.
+ * <p>
+ * At most one frame is in flight. A frame requested meanwhile is only remembered and started once
+ * the current one is back, with the latest frame time. The back buffer changes owners by message,
+ * it's never drawn into while the main thread may blit it.
+ */
+class PipelinedFrameRenderer implements Handler.Callback {
+
+    interface FrameProducer {
+        /**
+         * Called on the worker thread, draws a whole frame.
+         */
+        void renderFrame(Canvas canvas, long frameTimeNanos);
+    }
+
+    interface Listener {
+        /**
+         * Called on the main thread when a new front buffer is ready to be drawn.
+         */
+        void onFrameReady();
+    }
+
+    private static final int MSG_RENDER = 0;
+    private static final int MSG_FRAME_READY = 1;
+
+    private final FrameProducer producer;
+    private final Listener listener;
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper(), this);
+
+    /* Main thread. */
+    private Bitmap frontBuffer;
+    private Bitmap backBuffer;
+    private boolean frameInFlight = false;
+    private boolean framePending = false;
+    private long pendingFrameTimeNanos;
+    private int width = 0;
+    private int height = 0;
+    private boolean released = false;
+
+    /* Worker thread. */
+    private final Canvas canvas = new Canvas();
+
+    PipelinedFrameRenderer(FrameProducer producer, Listener listener) {
+        this.producer = producer;
+        this.listener = listener;
+        thread = new HandlerThread("PipelinedFrameRenderer", Process.THREAD_PRIORITY_DISPLAY);
+        thread.start();
+        handler = new Handler(thread.getLooper(), this);
+    }
+
+    /**
+     * Runs an update of the producer's state on the worker, in order with the frames.
+     */
+    void post(Runnable update) {
+        handler.post(update);
+    }
+
+    void setSurfaceSize(int width, int height) {
+        if (this.width == width && this.height == height) {
+            return;
+        }
+        this.width = width;
+        this.height = height;
+        /* A buffer in flight is dropped when it comes back. */
+        BitmapPool.get().release(frontBuffer);
+        BitmapPool.get().release(backBuffer);
+        frontBuffer = null;
+        backBuffer = null;
+    }
+
+    /**
+     * Starts producing a frame for the given frame time, or queues it if one is in flight.
+     */
+    void requestFrame(long frameTimeNanos) {
+        if (released || width <= 0 || height <= 0) {
+            return;
+        }
+        if (frameInFlight) {
+            framePending = true;
+            pendingFrameTimeNanos = frameTimeNanos;
+            return;
+        }
+        if (backBuffer == null) {
+            backBuffer = BitmapPool.get().acquire(width, height, Bitmap.Config.ARGB_8888);
+        }
+        Bitmap buffer = backBuffer;
+        backBuffer = null;
+        frameInFlight = true;
+        /* The frame time is split into two ints, so a message doesn't allocate. */
+        handler.obtainMessage(MSG_RENDER, (int) (frameTimeNanos >>> 32), (int) frameTimeNanos, buffer)
+                .sendToTarget();
+    }
+
+    /**
+     * Blits the front buffer, returns false if there is no frame yet.
+     */
+    boolean draw(Canvas canvas) {
+        if (frontBuffer == null) {
+            return false;
+        }
+        canvas.drawBitmap(frontBuffer, 0, 0, null);
+        return true;
+    }
+
+    void release() {
+        released = true;
+        thread.quitSafely();
+        BitmapPool.get().release(frontBuffer);
+        BitmapPool.get().release(backBuffer);
+        frontBuffer = null;
+        backBuffer = null;
+    }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+        switch (msg.what) {
+            case MSG_RENDER:
+                render((Bitmap) msg.obj, ((long) msg.arg1 << 32) | (msg.arg2 & 0xFFFFFFFFL));
+                return true;
+            case MSG_FRAME_READY:
+                onFrameRendered((Bitmap) msg.obj);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Worker thread: draws the frame and hands the buffer back to the main thread.
+     */
+    private void render(Bitmap buffer, long frameTimeNanos) {
+        canvas.setBitmap(buffer);
+        producer.renderFrame(canvas, frameTimeNanos);
+        canvas.setBitmap(null);
+        mainHandler.obtainMessage(MSG_FRAME_READY, buffer).sendToTarget();
+    }
+
+    /**
+     * Main thread: makes the rendered buffer the front one, the previous front buffer becomes the
+     * back buffer for the next frame.
+     */
+    private void onFrameRendered(Bitmap buffer) {
+        frameInFlight = false;
+        if (released || buffer.getWidth() != width || buffer.getHeight() != height) {
+            BitmapPool.get().release(buffer);
+        } else {
+            backBuffer = frontBuffer;
+            frontBuffer = buffer;
+            listener.onFrameReady();
+        }
+        if (framePending) {
+            framePending = false;
+            requestFrame(pendingFrameTimeNanos);
+        }
+    }
+}
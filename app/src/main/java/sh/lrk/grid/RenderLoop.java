@@ -0,0 +1,124 @@
+package sh.lrk.grid;
+
+import android.graphics.Canvas;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Message;
+import android.util.Log;
+import android.view.SurfaceHolder;
+
+/**
+ * Render thread for one surface. The loop owns exactly one thread, paces animation frames with
+ * the same {@link FrameScheduler} the watch face uses and otherwise only draws when asked to,
+ * e.g. after a settings change. All state changes are delivered as messages, so the renderer is
+ * only ever touched from the loop thread.
+ * <p>
+ * The watch face engine doesn't run on it: its surface is locked and posted by
+ * {@code CanvasWatchFaceService} on the main thread, and the engine's frame rate governor, ambient
+ * and complication state live there too. Its pipelined mode only moves the drawing into
+ * offscreen buffers on {@link PipelinedFrameRenderer}'s worker, paced from the main thread.
+ */
+class RenderLoop implements Handler.Callback {
+    private static final String TAG = "RenderLoop";
+
+    interface Renderer {
+        void onSettingsChanged(GridSettings settings);
+
+        void render(Canvas canvas, long frameTimeNanos);
+    }
+
+    private static final int MSG_START = 0;
+    private static final int MSG_SETTINGS_CHANGED = 1;
+    private static final int MSG_REDRAW = 2;
+
+    private final SurfaceHolder surfaceHolder;
+    private final Renderer renderer;
+    private final HandlerThread thread;
+    private final Handler handler;
+
+    /* Only accessed on the loop thread. */
+    private FrameScheduler frameScheduler;
+
+    RenderLoop(String name, SurfaceHolder surfaceHolder, Renderer renderer, GridSettings settings) {
+        this.surfaceHolder = surfaceHolder;
+        this.renderer = renderer;
+        thread = new HandlerThread(name);
+        thread.start();
+        handler = new Handler(thread.getLooper(), this);
+        handler.obtainMessage(MSG_START, settings).sendToTarget();
+    }
+
+    void onSettingsChanged(GridSettings settings) {
+        handler.obtainMessage(MSG_SETTINGS_CHANGED, settings).sendToTarget();
+    }
+
+    void requestRedraw() {
+        handler.removeMessages(MSG_REDRAW);
+        handler.sendEmptyMessage(MSG_REDRAW);
+    }
+
+    /**
+     * Stops the loop and waits for its thread, no frame is drawn after this returns.
+     */
+    void quit() {
+        handler.removeCallbacksAndMessages(null);
+        handler.post(() -> {
+            if (frameScheduler != null) {
+                frameScheduler.stop();
+            }
+        });
+        thread.quitSafely();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Log.e(TAG, "Interrupted while waiting for the render thread!", e);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+        switch (msg.what) {
+            case MSG_START:
+                /* The scheduler needs the Choreographer of this thread. */
+                frameScheduler = new FrameScheduler(this::drawFrame, GridPreferences.DEF_FRAME_RATE);
+                applySettings((GridSettings) msg.obj);
+                return true;
+            case MSG_SETTINGS_CHANGED:
+                applySettings((GridSettings) msg.obj);
+                return true;
+            case MSG_REDRAW:
+                drawFrame(System.nanoTime());
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void applySettings(GridSettings settings) {
+        renderer.onSettingsChanged(settings);
+        frameScheduler.setTargetFps(settings.frameRatePolicy.activeFps);
+        /* A grid without a direction doesn't move, so there is nothing to animate. */
+        if (settings.dx != 0 || settings.dy != 0) {
+            frameScheduler.start();
+        } else {
+            frameScheduler.stop();
+        }
+        drawFrame(System.nanoTime());
+    }
+
+    private void drawFrame(long frameTimeNanos) {
+        if (!surfaceHolder.getSurface().isValid()) {
+            return;
+        }
+        Canvas canvas = surfaceHolder.lockCanvas();
+        if (canvas == null) {
+            return;
+        }
+        try {
+            renderer.render(canvas, frameTimeNanos);
+        } finally {
+            surfaceHolder.unlockCanvasAndPost(canvas);
+        }
+    }
+}
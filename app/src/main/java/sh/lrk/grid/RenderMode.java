@@ -0,0 +1,13 @@
+package sh.lrk.grid;
+
+/**
+ * How the watch face gets its frames onto the screen.
+ */
+public enum RenderMode {
+    /* Software canvas handed out by CanvasWatchFaceService. */
+    SOFTWARE,
+    /* Hardware canvas locked on the engine's surface, the grid is a retained RenderNode. */
+    HARDWARE,
+    /* Software frames produced on a worker thread into two offscreen buffers, onDraw only blits. */
+    PIPELINED
+}
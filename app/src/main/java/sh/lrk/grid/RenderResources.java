@@ -0,0 +1,138 @@
+package sh.lrk.grid;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.content.res.Configuration;
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+
+/**
+ * Render resources shared by all engines and the config preview of the process: the clock
+ * typeface, the {@link ThemePaints} of the current theme and, through {@link BitmapPool}, the
+ * cache bitmaps. Loading the typeface from the assets is the expensive part of creating an
+ * engine, so it's loaded on a background thread once per process and a recreated engine picks up
+ * the loaded one.
+ * <p>
+ * Users {@link #acquire(Context)} the resources when they're created and {@link #release()} them
+ * when they're destroyed. Paints handed out are shared and must not be modified, switch to another
+ * paint set instead. On memory pressure the free bitmaps are dropped, and once nothing holds a
+ * reference anymore the typeface and paints as well.
+ */
+final class RenderResources implements ComponentCallbacks2 {
+    private static final String TYPEFACE_ASSET = "TRON.TTF";
+
+    private static RenderResources instance;
+
+    private final AssetManager assets;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private int references = 0;
+    private Typeface typeface;
+    private boolean loadingTypeface = false;
+    private final ArrayList<Runnable> typefaceCallbacks = new ArrayList<>();
+    private ThemePaints themePaints;
+
+    private RenderResources(Context context) {
+        assets = context.getAssets();
+    }
+
+    static synchronized RenderResources acquire(Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            instance = new RenderResources(appContext);
+            appContext.registerComponentCallbacks(instance);
+        }
+        instance.references++;
+        return instance;
+    }
+
+    void release() {
+        synchronized (RenderResources.class) {
+            if (references > 0) {
+                references--;
+            }
+        }
+    }
+
+    /**
+     * Runs the callback once the typeface is loaded, right away if it already is. Otherwise it's
+     * loaded on a background thread and the callback is posted to the main thread.
+     */
+    void loadTypeface(Runnable onLoaded) {
+        synchronized (this) {
+            if (typeface == null) {
+                typefaceCallbacks.add(onLoaded);
+                if (!loadingTypeface) {
+                    loadingTypeface = true;
+                    new Thread(this::loadTypefaceInBackground, "TypefaceLoader").start();
+                }
+                return;
+            }
+        }
+        onLoaded.run();
+    }
+
+    /**
+     * Drops a callback passed to {@link #loadTypeface(Runnable)} that didn't run yet.
+     */
+    synchronized void cancelTypefaceLoad(Runnable onLoaded) {
+        typefaceCallbacks.remove(onLoaded);
+        mainHandler.removeCallbacks(onLoaded);
+    }
+
+    private void loadTypefaceInBackground() {
+        Typeface loaded = Typeface.createFromAsset(assets, TYPEFACE_ASSET);
+        synchronized (this) {
+            typeface = loaded;
+            loadingTypeface = false;
+            for (Runnable callback : typefaceCallbacks) {
+                mainHandler.post(callback);
+            }
+            typefaceCallbacks.clear();
+        }
+    }
+
+    /**
+     * The clock typeface, null until it's loaded.
+     */
+    synchronized Typeface getTypeface() {
+        return typeface;
+    }
+
+    /**
+     * The paint sets of the theme with the current typeface. They're built once and shared until
+     * the theme or the typeface changes.
+     */
+    synchronized ThemePaints getThemePaints(Theme theme) {
+        if (themePaints == null || !themePaints.theme.equals(theme) || themePaints.typeface != typeface) {
+            themePaints = new ThemePaints(theme, typeface);
+        }
+        return themePaints;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        BitmapPool.get().trim();
+        synchronized (RenderResources.class) {
+            if (references > 0) {
+                return;
+            }
+        }
+        synchronized (this) {
+            typeface = null;
+            themePaints = null;
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+}
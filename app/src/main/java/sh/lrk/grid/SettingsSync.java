@@ -0,0 +1,184 @@
+package sh.lrk.grid;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static sh.lrk.grid.GridPreferences.KEY_ACTIVE_DIRECTION;
+import static sh.lrk.grid.GridPreferences.KEY_EASING;
+import static sh.lrk.grid.GridPreferences.KEY_GRID_PATTERN;
+import static sh.lrk.grid.GridPreferences.KEY_LINE_COUNT;
+import static sh.lrk.grid.GridPreferences.KEY_SPEED;
+import static sh.lrk.grid.GridPreferences.KEY_THEME_AMBIENT_COLOR;
+import static sh.lrk.grid.GridPreferences.KEY_THEME_GLOW_COLOR;
+import static sh.lrk.grid.GridPreferences.KEY_THEME_GRID_COLOR;
+import static sh.lrk.grid.GridPreferences.KEY_THEME_TEXT_COLOR;
+import static sh.lrk.grid.GridPreferences.KEY_USE_24H;
+import static sh.lrk.grid.GridPreferences.LINE_COUNTS;
+import static sh.lrk.grid.GridPreferences.SPEEDS;
+
+/**
+ * Applies settings received over a {@link SettingsTransport} to the preferences. A burst of
+ * changes is collected until nothing new came in for {@link #DEBOUNCE_MS}, but at most
+ * {@link #MAX_DELAY_MS} after its first change, and then written in a single edit. Together with
+ * the coalesced reloads of {@link GridSettingsStore} that's one disk write and one redraw per
+ * burst instead of one per change.
+ * <p>
+ * {@link SettingsSyncService} releases the sync, and with it writes what is pending, when the
+ * system unbinds it, which is usually right after a delivery. So in practice a burst is what
+ * arrives in one delivery, the phone should put an edit of several settings into one data item.
+ */
+class SettingsSync implements SettingsTransport.Receiver {
+    private static final String TAG = "SettingsSync";
+    static final long DEBOUNCE_MS = 500;
+    static final long MAX_DELAY_MS = 2000;
+
+    /* Settings the phone may change and the type of their values, anything else is dropped. */
+    private static final Map<String, Class<?>> SYNCED_KEYS = new HashMap<>();
+
+    static {
+        SYNCED_KEYS.put(KEY_ACTIVE_DIRECTION, Collection.class);
+        SYNCED_KEYS.put(KEY_USE_24H, Boolean.class);
+        SYNCED_KEYS.put(KEY_GRID_PATTERN, String.class);
+        SYNCED_KEYS.put(KEY_LINE_COUNT, Integer.class);
+        SYNCED_KEYS.put(KEY_SPEED, Integer.class);
+        SYNCED_KEYS.put(KEY_EASING, String.class);
+        /* Any color is valid, only the image the colors came from stays on the watch. */
+        SYNCED_KEYS.put(KEY_THEME_GRID_COLOR, Integer.class);
+        SYNCED_KEYS.put(KEY_THEME_GLOW_COLOR, Integer.class);
+        SYNCED_KEYS.put(KEY_THEME_TEXT_COLOR, Integer.class);
+        SYNCED_KEYS.put(KEY_THEME_AMBIENT_COLOR, Integer.class);
+    }
+
+    private final SharedPreferences preferences;
+    private final SettingsTransport transport;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable commit = this::commit;
+
+    /* Guarded by this, changes arrive on the transport's thread. */
+    private final HashMap<String, Object> pending = new HashMap<>();
+    private long burstStartMillis;
+
+    SettingsSync(SharedPreferences preferences, SettingsTransport transport) {
+        this.preferences = preferences;
+        this.transport = transport;
+        transport.setReceiver(this);
+    }
+
+    @Override
+    public void onSettingsReceived(Map<String, Object> values) {
+        long now = SystemClock.uptimeMillis();
+        synchronized (this) {
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                if (!accepts(entry.getKey(), entry.getValue())) {
+                    Log.w(TAG, "Ignoring synced setting " + entry.getKey());
+                    continue;
+                }
+                if (pending.isEmpty()) {
+                    burstStartMillis = now;
+                }
+                pending.put(entry.getKey(), entry.getValue());
+            }
+            if (pending.isEmpty()) {
+                return;
+            }
+            long commitAt = Math.min(now + DEBOUNCE_MS, burstStartMillis + MAX_DELAY_MS);
+            handler.removeCallbacks(commit);
+            handler.postAtTime(commit, commitAt);
+        }
+    }
+
+    /**
+     * Stops receiving and writes what is still pending right away.
+     */
+    void release() {
+        transport.setReceiver(null);
+        handler.removeCallbacks(commit);
+        commit();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void commit() {
+        HashMap<String, Object> values;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            values = new HashMap<>(pending);
+            pending.clear();
+        }
+        SharedPreferences.Editor editor = preferences.edit();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof Boolean) {
+                editor.putBoolean(entry.getKey(), (Boolean) value);
+            } else if (value instanceof Integer) {
+                editor.putInt(entry.getKey(), (Integer) value);
+            } else if (value instanceof String) {
+                editor.putString(entry.getKey(), (String) value);
+            } else {
+                editor.putStringSet(entry.getKey(), new HashSet<>((Collection<String>) value));
+            }
+        }
+        editor.apply();
+    }
+
+    /**
+     * Whether the value has the key's type and is one the face can show, the phone may run
+     * another version of the app.
+     */
+    private static boolean accepts(String key, Object value) {
+        Class<?> type = SYNCED_KEYS.get(key);
+        if (type == null || !type.isInstance(value)) {
+            return false;
+        }
+        switch (key) {
+            case KEY_ACTIVE_DIRECTION:
+                for (Object element : (Collection<?>) value) {
+                    if (!(element instanceof String) || !isName(GridDirection.class, (String) element)) {
+                        return false;
+                    }
+                }
+                return true;
+            case KEY_GRID_PATTERN:
+                return isName(GridPatternType.class, (String) value);
+            case KEY_EASING:
+                return isName(MotionEasing.class, (String) value);
+            case KEY_LINE_COUNT:
+                return inRange((Integer) value, LINE_COUNTS);
+            case KEY_SPEED:
+                return inRange((Integer) value, SPEEDS);
+            default:
+                return true;
+        }
+    }
+
+    private static <E extends Enum<E>> boolean isName(Class<E> type, String name) {
+        for (E constant : type.getEnumConstants()) {
+            if (constant.name().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether the value lies between the smallest and the largest of the selectable ones.
+     */
+    private static boolean inRange(int value, int[] choices) {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int choice : choices) {
+            min = Math.min(min, choice);
+            max = Math.max(max, choice);
+        }
+        return value >= min && value <= max;
+    }
+}
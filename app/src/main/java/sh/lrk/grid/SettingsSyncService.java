@@ -0,0 +1,34 @@
+package sh.lrk.grid;
+
+import com.google.android.gms.wearable.DataEventBuffer;
+import com.google.android.gms.wearable.WearableListenerService;
+
+import static sh.lrk.grid.GridPreferences.PREFERENCES_NAME;
+
+/**
+ * Receives settings changed in the companion phone app over the Wearable Data Layer. The system
+ * binds the service for incoming data events and usually destroys it right after, so
+ * {@link SettingsSync} batches the changes of one delivery and writes them when it goes away.
+ */
+public class SettingsSyncService extends WearableListenerService {
+    private DataLayerSettingsTransport transport;
+    private SettingsSync settingsSync;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        transport = new DataLayerSettingsTransport();
+        settingsSync = new SettingsSync(getSharedPreferences(PREFERENCES_NAME, MODE_PRIVATE), transport);
+    }
+
+    @Override
+    public void onDataChanged(DataEventBuffer dataEvents) {
+        transport.onDataChanged(dataEvents);
+    }
+
+    @Override
+    public void onDestroy() {
+        settingsSync.release();
+        super.onDestroy();
+    }
+}
@@ -0,0 +1,21 @@
+package sh.lrk.grid;
+
+import java.util.Map;
+
+/**
+ * Delivers settings changed on another device, e.g. the companion phone app. Changes arrive as
+ * maps from the preference keys of {@link GridPreferences} to their new values.
+ */
+interface SettingsTransport {
+    interface Receiver {
+        /**
+         * Called on any thread, the map belongs to the receiver.
+         */
+        void onSettingsReceived(Map<String, Object> values);
+    }
+
+    /**
+     * Sets the receiver of all following changes, null to stop receiving.
+     */
+    void setReceiver(Receiver receiver);
+}
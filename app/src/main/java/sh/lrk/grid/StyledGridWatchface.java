@@ -0,0 +1,63 @@
+package sh.lrk.grid;
+
+import android.view.SurfaceHolder;
+
+import androidx.concurrent.futures.ResolvableFuture;
+import androidx.wear.watchface.ComplicationSlotsManager;
+import androidx.wear.watchface.ListenableWatchFaceService;
+import androidx.wear.watchface.WatchFace;
+import androidx.wear.watchface.WatchFaceType;
+import androidx.wear.watchface.WatchState;
+import androidx.wear.watchface.style.CurrentUserStyleRepository;
+import androidx.wear.watchface.style.UserStyleSchema;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.Collections;
+
+import static sh.lrk.grid.GridPreferences.PREFERENCES_NAME;
+
+/**
+ * The face on the androidx watch face stack. The system schedules and throttles the frames and
+ * hands over ambient and mute, {@link GridCanvasRenderer} only draws. Direction and 24h clock are
+ * user style settings the system's editor shows, see {@link GridUserStyle}.
+ * <p>
+ * It's offered next to the legacy {@link GridWatchface} on Wear OS 3, which keeps the complications
+ * until they are ported to complication slots, see {@code bools.xml}.
+ */
+public class StyledGridWatchface extends ListenableWatchFaceService {
+    private GridUserStyle userStyle;
+
+    private GridUserStyle getUserStyle() {
+        if (userStyle == null) {
+            userStyle = new GridUserStyle(getResources());
+        }
+        return userStyle;
+    }
+
+    @Override
+    protected UserStyleSchema createUserStyleSchema() {
+        return getUserStyle().schema;
+    }
+
+    @Override
+    protected ComplicationSlotsManager createComplicationSlotsManager(
+            CurrentUserStyleRepository currentUserStyleRepository) {
+        /* Complications are only offered by the legacy face for now. */
+        return new ComplicationSlotsManager(Collections.emptyList(), currentUserStyleRepository);
+    }
+
+    @Override
+    protected ListenableFuture<WatchFace> createWatchFaceFuture(
+            SurfaceHolder surfaceHolder, WatchState watchState,
+            ComplicationSlotsManager complicationSlotsManager,
+            CurrentUserStyleRepository currentUserStyleRepository) {
+        GridCanvasRenderer renderer = new GridCanvasRenderer(this, surfaceHolder, watchState,
+                currentUserStyleRepository, getUserStyle(),
+                getSharedPreferences(PREFERENCES_NAME, MODE_PRIVATE));
+        /* Ready right away, the clock joins once the typeface is loaded. */
+        ResolvableFuture<WatchFace> future = ResolvableFuture.create();
+        future.set(new WatchFace(WatchFaceType.DIGITAL, renderer));
+        return future;
+    }
+}
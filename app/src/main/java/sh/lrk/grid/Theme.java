@@ -0,0 +1,67 @@
+package sh.lrk.grid;
+
+import android.content.SharedPreferences;
+import android.graphics.Color;
+
+import static sh.lrk.grid.GridPreferences.KEY_THEME_AMBIENT_COLOR;
+import static sh.lrk.grid.GridPreferences.KEY_THEME_GLOW_COLOR;
+import static sh.lrk.grid.GridPreferences.KEY_THEME_GRID_COLOR;
+import static sh.lrk.grid.GridPreferences.KEY_THEME_TEXT_COLOR;
+
+/**
+ * The colors of the face. The background always stays black.
+ */
+final class Theme {
+    static final Theme DEFAULT = new Theme(
+            Color.BLUE,
+            Color.argb(255, 0, 0, 128),
+            Color.argb(180, 255, 255, 255),
+            Color.WHITE);
+
+    final int gridColor;
+    /* Shadow around the grid lines in interactive mode. */
+    final int glowColor;
+    final int textColor;
+    /* Tint of the whole ambient frame, the alpha is ignored. */
+    final int ambientColor;
+
+    Theme(int gridColor, int glowColor, int textColor, int ambientColor) {
+        this.gridColor = gridColor;
+        this.glowColor = glowColor;
+        this.textColor = textColor;
+        this.ambientColor = ambientColor;
+    }
+
+    static Theme load(SharedPreferences preferences) {
+        return new Theme(
+                preferences.getInt(KEY_THEME_GRID_COLOR, DEFAULT.gridColor),
+                preferences.getInt(KEY_THEME_GLOW_COLOR, DEFAULT.glowColor),
+                preferences.getInt(KEY_THEME_TEXT_COLOR, DEFAULT.textColor),
+                preferences.getInt(KEY_THEME_AMBIENT_COLOR, DEFAULT.ambientColor));
+    }
+
+    void store(SharedPreferences.Editor editor) {
+        editor.putInt(KEY_THEME_GRID_COLOR, gridColor)
+                .putInt(KEY_THEME_GLOW_COLOR, glowColor)
+                .putInt(KEY_THEME_TEXT_COLOR, textColor)
+                .putInt(KEY_THEME_AMBIENT_COLOR, ambientColor);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Theme)) {
+            return false;
+        }
+        Theme theme = (Theme) o;
+        return gridColor == theme.gridColor && glowColor == theme.glowColor
+                && textColor == theme.textColor && ambientColor == theme.ambientColor;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((gridColor * 31 + glowColor) * 31 + textColor) * 31 + ambientColor;
+    }
+}
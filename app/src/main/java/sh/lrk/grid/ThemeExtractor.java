@@ -0,0 +1,106 @@
+package sh.lrk.grid;
+
+import android.content.ContentResolver;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.ImageDecoder;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+
+import androidx.palette.graphics.Palette;
+
+import java.io.IOException;
+
+import static sh.lrk.grid.GridPreferences.KEY_THEME_AMBIENT_COLOR;
+import static sh.lrk.grid.GridPreferences.KEY_THEME_GLOW_COLOR;
+import static sh.lrk.grid.GridPreferences.KEY_THEME_GRID_COLOR;
+import static sh.lrk.grid.GridPreferences.KEY_THEME_IMAGE;
+import static sh.lrk.grid.GridPreferences.KEY_THEME_TEXT_COLOR;
+
+/**
+ * Derives a {@link Theme} from an image with {@link Palette}. Decoding and extraction run on a
+ * worker thread, the result is stored in the preferences together with the image it came from,
+ * so picking the same image again costs nothing and the engine only ever reads the colors.
+ */
+class ThemeExtractor {
+    private static final String TAG = "ThemeExtractor";
+    /* Palette scales down to about this many pixels anyway, decode no larger. */
+    private static final int TARGET_SIZE = 112;
+
+    private final ContentResolver contentResolver;
+    private final SharedPreferences preferences;
+    private final HandlerThread thread;
+    private final Handler handler;
+
+    ThemeExtractor(ContentResolver contentResolver, SharedPreferences preferences) {
+        this.contentResolver = contentResolver;
+        this.preferences = preferences;
+        thread = new HandlerThread(TAG);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+    }
+
+    /**
+     * Extracts the theme of the image in the background and stores it, unless the current theme
+     * already came from that image.
+     */
+    void extract(Uri image) {
+        if (image.toString().equals(preferences.getString(KEY_THEME_IMAGE, null))) {
+            return;
+        }
+        handler.post(() -> {
+            Bitmap bitmap;
+            try {
+                bitmap = ImageDecoder.decodeBitmap(ImageDecoder.createSource(contentResolver, image),
+                        (decoder, info, source) -> {
+                            int size = Math.max(info.getSize().getWidth(), info.getSize().getHeight());
+                            decoder.setTargetSampleSize(Math.max(1, size / TARGET_SIZE));
+                            /* Palette reads the pixels, hardware bitmaps can't be read. */
+                            decoder.setAllocator(ImageDecoder.ALLOCATOR_SOFTWARE);
+                        });
+            } catch (IOException e) {
+                Log.e(TAG, "Unable to decode theme image!", e);
+                return;
+            }
+            Theme theme = fromPalette(Palette.from(bitmap).generate());
+            bitmap.recycle();
+            SharedPreferences.Editor editor = preferences.edit();
+            theme.store(editor);
+            editor.putString(KEY_THEME_IMAGE, image.toString()).apply();
+        });
+    }
+
+    /**
+     * Goes back to the default colors.
+     */
+    void reset() {
+        preferences.edit()
+                .remove(KEY_THEME_GRID_COLOR)
+                .remove(KEY_THEME_GLOW_COLOR)
+                .remove(KEY_THEME_TEXT_COLOR)
+                .remove(KEY_THEME_AMBIENT_COLOR)
+                .remove(KEY_THEME_IMAGE)
+                .apply();
+    }
+
+    void release() {
+        handler.removeCallbacksAndMessages(null);
+        thread.quitSafely();
+    }
+
+    /**
+     * Vibrant grid with a darker glow, light text, falling back to the default colors for
+     * swatches the image doesn't have.
+     */
+    static Theme fromPalette(Palette palette) {
+        Theme fallback = Theme.DEFAULT;
+        int grid = palette.getVibrantColor(palette.getDominantColor(fallback.gridColor));
+        int glow = palette.getDarkVibrantColor(fallback.glowColor);
+        int light = palette.getLightMutedColor(palette.getLightVibrantColor(Color.WHITE));
+        int text = (Color.alpha(fallback.textColor) << 24) | (light & 0xFFFFFF);
+        return new Theme(grid | Color.BLACK, glow | Color.BLACK, text, light | Color.BLACK);
+    }
+}
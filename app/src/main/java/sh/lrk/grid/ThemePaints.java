@@ -0,0 +1,95 @@
+package sh.lrk.grid;
+
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.text.TextPaint;
+
+/**
+ * All {@link PaintSet}s of a theme, built once up front: interactive and ambient, each muted or
+ * not, on low-bit displays or not, with burn-in protection or not. Getting the set for a mode is
+ * a lookup.
+ */
+final class ThemePaints {
+    /* Alphas of grid and text in the ambient frame, the grid matches the old rgb(50, 50, 50). */
+    private static final int AMBIENT_GRID_ALPHA = 50;
+    private static final int AMBIENT_TEXT_ALPHA = 200;
+    private static final int MUTED_GRID_ALPHA = 80;
+    private static final float OUTLINE_WIDTH = 2f;
+
+    private static final int AMBIENT = 1;
+    private static final int MUTED = 2;
+    private static final int LOW_BIT = 4;
+    private static final int BURN_IN = 8;
+
+    final Theme theme;
+    final Typeface typeface;
+    private final PaintSet[] sets = new PaintSet[16];
+
+    /**
+     * Without a typeface the interactive sets have no clock paint and the ambient ones use the
+     * default font.
+     */
+    ThemePaints(Theme theme, Typeface typeface) {
+        this.theme = theme;
+        this.typeface = typeface;
+        PaintSet interactive = createInteractive(false);
+        PaintSet interactiveMuted = createInteractive(true);
+        for (int mode = 0; mode < sets.length; mode++) {
+            if ((mode & AMBIENT) == 0) {
+                /* Low-bit and burn-in only matter in ambient. */
+                sets[mode] = (mode & MUTED) != 0 ? interactiveMuted : interactive;
+            } else if ((mode & MUTED) != 0) {
+                /* The ambient frame is as dim as it gets already. */
+                sets[mode] = sets[mode & ~MUTED];
+            } else {
+                sets[mode] = createAmbient((mode & LOW_BIT) != 0, (mode & BURN_IN) != 0);
+            }
+        }
+    }
+
+    PaintSet get(boolean ambient, boolean muted, boolean lowBitAmbient, boolean burnInProtection) {
+        return sets[(ambient ? AMBIENT : 0) | (muted ? MUTED : 0)
+                | (lowBitAmbient ? LOW_BIT : 0) | (burnInProtection ? BURN_IN : 0)];
+    }
+
+    private PaintSet createInteractive(boolean muted) {
+        Paint grid = new Paint();
+        grid.setColor(theme.gridColor);
+        grid.setAntiAlias(true);
+        grid.setShadowLayer(2f, 0, 0, theme.glowColor);
+        if (muted) {
+            grid.setAlpha(MUTED_GRID_ALPHA);
+        }
+        TextPaint text = null;
+        if (typeface != null) {
+            text = new TextPaint();
+            text.setColor(theme.textColor);
+            text.setAntiAlias(true);
+            text.setTypeface(typeface);
+        }
+        return new PaintSet(grid, text, null);
+    }
+
+    private PaintSet createAmbient(boolean lowBitAmbient, boolean burnInProtection) {
+        /*
+         * Drawn into an alpha-only frame, only the alphas count. Low-bit displays can only show
+         * fully lit or black pixels.
+         */
+        Paint grid = new Paint();
+        grid.setAntiAlias(false);
+        grid.setAlpha(lowBitAmbient ? 255 : AMBIENT_GRID_ALPHA);
+        TextPaint text = new TextPaint();
+        text.setTypeface(typeface);
+        text.setAlpha(lowBitAmbient ? 255 : AMBIENT_TEXT_ALPHA);
+        text.setAntiAlias(!lowBitAmbient);
+        if (burnInProtection) {
+            text.setStyle(Paint.Style.STROKE);
+            text.setStrokeWidth(OUTLINE_WIDTH);
+        }
+        /* The theme only tints full-color ambient, low-bit stays pure white on black. */
+        Paint frame = new Paint();
+        frame.setColor(lowBitAmbient ? Color.WHITE : theme.ambientColor | Color.BLACK);
+        return new PaintSet(grid, text, frame);
+    }
+}
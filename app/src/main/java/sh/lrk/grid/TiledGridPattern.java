@@ -0,0 +1,103 @@
+package sh.lrk.grid;
+
+import android.graphics.Rect;
+
+/**
+ * Base for patterns made of arbitrary segments that repeat with a fixed period. The segments are
+ * laid out one period beyond the surface on every side, so any offset within a period still
+ * covers the whole surface and moving the pattern just adds the offset delta to every
+ * coordinate.
+ */
+abstract class TiledGridPattern implements GridPattern {
+    private float[] points = new float[0];
+    private int pointCount = 0;
+    private int width = -1;
+    private int height = -1;
+    private float spacing = -1f;
+    private float offsetX = 0f;
+    private float offsetY = 0f;
+
+    @Override
+    public void resize(int width, int height, float spacing) {
+        if (width == this.width && height == this.height && spacing == this.spacing) {
+            return;
+        }
+        this.width = width;
+        this.height = height;
+        this.spacing = spacing;
+        resetPoints();
+    }
+
+    @Override
+    public void setOffset(float offsetX, float offsetY) {
+        float dx = offsetX - this.offsetX;
+        float dy = offsetY - this.offsetY;
+        if (Math.abs(dx) >= getPeriodX() || Math.abs(dy) >= getPeriodY()) {
+            /* The offset wrapped around, start over from the exact positions to avoid drift. */
+            resetPoints();
+            dx = offsetX;
+            dy = offsetY;
+        }
+        if (dx != 0 || dy != 0) {
+            for (int i = 0; i < pointCount; i += 2) {
+                points[i] += dx;
+                points[i + 1] += dy;
+            }
+        }
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+    }
+
+    @Override
+    public boolean isTranslational() {
+        return true;
+    }
+
+    @Override
+    public void getDirtyBounds(boolean movesX, boolean movesY, Rect bounds) {
+        if (movesX || movesY) {
+            bounds.set(0, 0, width, height);
+        } else {
+            bounds.setEmpty();
+        }
+    }
+
+    @Override
+    public float[] getPoints() {
+        return points;
+    }
+
+    @Override
+    public int getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * Adds the segments covering [-periodX, width + periodX] x [-periodY, height + periodY] at
+     * offset zero through {@link #addLine(float, float, float, float)}.
+     */
+    abstract void layout(int width, int height, float spacing);
+
+    /**
+     * Upper bound of the segments {@link #layout(int, int, float)} will add.
+     */
+    abstract int getMaxLines(int width, int height, float spacing);
+
+    final void addLine(float x0, float y0, float x1, float y1) {
+        points[pointCount++] = x0;
+        points[pointCount++] = y0;
+        points[pointCount++] = x1;
+        points[pointCount++] = y1;
+    }
+
+    private void resetPoints() {
+        int size = 4 * getMaxLines(width, height, spacing);
+        if (points.length < size) {
+            points = new float[size];
+        }
+        pointCount = 0;
+        layout(width, height, spacing);
+        offsetX = 0f;
+        offsetY = 0f;
+    }
+}
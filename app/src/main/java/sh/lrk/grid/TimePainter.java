@@ -0,0 +1,258 @@
+package sh.lrk.grid;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.text.TextPaint;
+
+import java.util.Calendar;
+
+/**
+ * Draws the clock text without allocating: digits are formatted into a reusable char array and
+ * the text is measured from glyph advances cached per text size. The layout is only recomputed
+ * when the minute, the 12/24h setting or the surface size changes.
+ * <p>
+ * With the layer cache enabled the text is rasterized into a bitmap on layout changes only and
+ * every frame just composites that bitmap.
+ */
+class TimePainter {
+    /* All glyphs the clock can show, their advances are measured in one go. */
+    private static final String GLYPHS = "0123456789: AMP";
+    private static final int GLYPH_COLON = 10;
+    private static final int GLYPH_SPACE = 11;
+    /* Room for anti-aliasing around the glyphs in the cached layer. */
+    private static final int LAYER_PADDING = 2;
+
+    /**
+     * Hands out the paint for a text size, null while none is available yet. The paint may be
+     * shared and must not be modified.
+     */
+    interface PaintSource {
+        TextPaint getPaint(float textSize);
+    }
+
+    private final PaintSource paintSource;
+    private TextPaint textPaint;
+    private boolean use24h = true;
+    private float textSize = 48f;
+
+    private final char[] timeChars = new char[8]; // fits "hh:mm AM"
+    private int timeLength = 0;
+    private final float[] glyphAdvances = new float[GLYPHS.length()];
+    private float glyphTextSize = -1f;
+    private TextPaint glyphPaint;
+
+    private boolean layoutValid = false;
+    private int layoutMinuteOfDay = -1;
+    private int layoutHeight = -1;
+    private float layoutCenterX;
+    private float layoutCenterY;
+    private int textX;
+    private int textY;
+    private float textWidth;
+
+    private boolean layerCacheEnabled = false;
+    private Bitmap textLayer;
+    private final Canvas textLayerCanvas = new Canvas();
+    private final Paint.FontMetrics fontMetrics = new Paint.FontMetrics();
+    private float layerLeft;
+    private float layerTop;
+
+    TimePainter(PaintSource paintSource) {
+        this.paintSource = paintSource;
+    }
+
+    /**
+     * A source that resizes the given paint, for painters that own their paint.
+     */
+    static PaintSource resizing(TextPaint textPaint) {
+        return textSize -> {
+            textPaint.setTextSize(textSize);
+            return textPaint;
+        };
+    }
+
+    void setUse24h(boolean use24h) {
+        if (this.use24h != use24h) {
+            this.use24h = use24h;
+            layoutValid = false;
+        }
+    }
+
+    /**
+     * Enables or disables compositing the time from a cached text bitmap that is only redrawn
+     * when the layout changes.
+     */
+    void setLayerCacheEnabled(boolean enabled) {
+        if (layerCacheEnabled != enabled) {
+            layerCacheEnabled = enabled;
+            releaseLayerCache();
+        }
+    }
+
+    void releaseLayerCache() {
+        if (textLayer != null) {
+            BitmapPool.get().release(textLayer);
+            textLayer = null;
+        }
+        layoutValid = false;
+    }
+
+    /**
+     * Forces the next frame to lay out the text again, e.g. after the paint or the time zone
+     * changed.
+     */
+    void invalidateLayout() {
+        layoutValid = false;
+    }
+
+    void drawTime(Canvas canvas, Calendar calendar, float centerX, float centerY) {
+        layout(calendar, canvas.getHeight(), centerX, centerY);
+        if (textPaint == null) {
+            return;
+        }
+        if (layerCacheEnabled) {
+            canvas.drawBitmap(textLayer, layerLeft, layerTop, null);
+        } else {
+            canvas.drawText(timeChars, 0, timeLength, textX, textY, textPaint);
+        }
+    }
+
+    /**
+     * Lays out the time for the given surface height ahead of drawing it, a no-op if the layout
+     * is still valid.
+     */
+    void layout(Calendar calendar, int height, float centerX, float centerY) {
+        int minuteOfDay = calendar.get(Calendar.HOUR_OF_DAY) * 60 + calendar.get(Calendar.MINUTE);
+        if (!layoutValid || minuteOfDay != layoutMinuteOfDay || height != layoutHeight
+                || centerX != layoutCenterX || centerY != layoutCenterY) {
+            updateLayout(minuteOfDay, height, centerX, centerY);
+        }
+    }
+
+    /**
+     * Area the current layout draws into, including the padding for anti-aliasing.
+     */
+    void getBounds(Rect bounds) {
+        bounds.set(textX - LAYER_PADDING,
+                (int) Math.floor(textY + fontMetrics.top) - LAYER_PADDING,
+                (int) Math.ceil(textX + textWidth) + LAYER_PADDING,
+                (int) Math.ceil(textY + fontMetrics.bottom) + LAYER_PADDING);
+    }
+
+    private void updateLayout(int minuteOfDay, int height, float centerX, float centerY) {
+        textSize = height / ((use24h) ? 5f : 7f);
+        textPaint = paintSource.getPaint(textSize);
+        if (textPaint == null) {
+            /* The layout stays invalid, the next frame tries again. */
+            timeLength = 0;
+            textWidth = 0;
+            return;
+        }
+        /* A different paint may have a different typeface at the same size. */
+        if (textSize != glyphTextSize || textPaint != glyphPaint) {
+            textPaint.getTextWidths(GLYPHS, glyphAdvances);
+            glyphTextSize = textSize;
+            glyphPaint = textPaint;
+        }
+
+        textPaint.getFontMetrics(fontMetrics);
+
+        formatTime(minuteOfDay / 60, minuteOfDay % 60);
+        textWidth = getTextWidth(timeChars, timeLength);
+        textX = Math.round(centerX - (textWidth / 2));
+        textY = Math.round(centerY + (textSize / 2));
+
+        layoutMinuteOfDay = minuteOfDay;
+        layoutHeight = height;
+        layoutCenterX = centerX;
+        layoutCenterY = centerY;
+        layoutValid = true;
+
+        if (layerCacheEnabled) {
+            renderLayer();
+        }
+    }
+
+    private void renderLayer() {
+        /* Sized for the widest possible text, so the bitmap is reused until the text size changes. */
+        int layerWidth = (int) Math.ceil(getMaxTextWidth()) + 2 * LAYER_PADDING;
+        int layerHeight = (int) Math.ceil(fontMetrics.bottom - fontMetrics.top) + 2 * LAYER_PADDING;
+        if (textLayer == null || textLayer.getWidth() != layerWidth || textLayer.getHeight() != layerHeight) {
+            if (textLayer != null) {
+                BitmapPool.get().release(textLayer);
+            }
+            textLayer = BitmapPool.get().acquire(layerWidth, layerHeight, Bitmap.Config.ARGB_8888);
+            textLayerCanvas.setBitmap(textLayer);
+        }
+        textLayer.eraseColor(Color.TRANSPARENT);
+        float baseline = LAYER_PADDING - fontMetrics.top;
+        textLayerCanvas.drawText(timeChars, 0, timeLength, LAYER_PADDING, baseline, textPaint);
+        layerLeft = textX - LAYER_PADDING;
+        layerTop = textY - baseline;
+    }
+
+    private float getMaxTextWidth() {
+        float maxDigit = 0;
+        for (int i = 0; i <= 9; i++) {
+            maxDigit = Math.max(maxDigit, glyphAdvances[i]);
+        }
+        float width = 4 * maxDigit + glyphAdvances[GLYPH_COLON];
+        if (!use24h) {
+            width += glyphAdvances[GLYPH_SPACE]
+                    + Math.max(glyphAdvances[GLYPHS.indexOf('A')], glyphAdvances[GLYPHS.indexOf('P')])
+                    + glyphAdvances[GLYPHS.indexOf('M')];
+        }
+        return width;
+    }
+
+    private void formatTime(int hourOfDay, int minute) {
+        int hour = hourOfDay;
+        if (!use24h) {
+            hour = hourOfDay % 12;
+            if (hour == 0) {
+                hour = 12;
+            }
+        }
+        timeChars[0] = (char) ('0' + hour / 10);
+        timeChars[1] = (char) ('0' + hour % 10);
+        timeChars[2] = ':';
+        timeChars[3] = (char) ('0' + minute / 10);
+        timeChars[4] = (char) ('0' + minute % 10);
+        if (use24h) {
+            timeLength = 5;
+        } else {
+            timeChars[5] = ' ';
+            timeChars[6] = (hourOfDay < 12) ? 'A' : 'P';
+            timeChars[7] = 'M';
+            timeLength = 8;
+        }
+    }
+
+    /**
+     * Sums up the cached advances of the given chars, they have to be part of {@link #GLYPHS}.
+     */
+    float getTextWidth(char[] text, int length) {
+        float textWidth = 0;
+        for (int i = 0; i < length; i++) {
+            textWidth += glyphAdvances[glyphIndex(text[i])];
+        }
+        return textWidth;
+    }
+
+    private static int glyphIndex(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        switch (c) {
+            case ':':
+                return GLYPH_COLON;
+            case ' ':
+                return GLYPH_SPACE;
+            default:
+                return GLYPHS.indexOf(c);
+        }
+    }
+}
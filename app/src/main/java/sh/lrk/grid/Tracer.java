@@ -0,0 +1,57 @@
+package sh.lrk.grid;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Trace sections, async slices and counters for Perfetto/systrace. They are only emitted by the
+ * {@code traced} build type, everywhere else {@link BuildConfig#TRACE} is a constant false and the
+ * calls compile to nothing.
+ * <p>
+ * Async slices and counters need API 29, on older systems they're skipped.
+ */
+final class Tracer {
+    /* Async slice cookies, slices with the same name and cookie pair up. */
+    static final int COOKIE_INTERACTIVE = 1;
+    static final int COOKIE_STARTUP = 2;
+
+    private Tracer() {
+    }
+
+    /**
+     * Starts a section on the current thread, has to be closed by {@link #end()} on the same
+     * thread.
+     */
+    static void begin(String sectionName) {
+        if (BuildConfig.TRACE) {
+            Trace.beginSection(sectionName);
+        }
+    }
+
+    static void end() {
+        if (BuildConfig.TRACE) {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * Starts a slice that may end on another thread or in another callback.
+     */
+    static void beginAsync(String sectionName, int cookie) {
+        if (BuildConfig.TRACE && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(sectionName, cookie);
+        }
+    }
+
+    static void endAsync(String sectionName, int cookie) {
+        if (BuildConfig.TRACE && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(sectionName, cookie);
+        }
+    }
+
+    static void counter(String counterName, long value) {
+        if (BuildConfig.TRACE && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.setCounter(counterName, value);
+        }
+    }
+}
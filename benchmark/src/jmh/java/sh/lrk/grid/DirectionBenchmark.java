@@ -0,0 +1,53 @@
+package sh.lrk.grid;
+
+import android.content.SharedPreferences;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static sh.lrk.grid.GridPreferences.KEY_ACTIVE_DIRECTION;
+
+/**
+ * Direction resolution: what a grid frame pays ({@link #resolveDirections()}) and what a
+ * preference change pays ({@link #loadSettings()}).
+ */
+@State(Scope.Thread)
+public class DirectionBenchmark {
+
+    @Param({"DOWN,RIGHT", "UP", "LEFT,UP", ""})
+    public String directions;
+
+    private SharedPreferences preferences;
+    private GridSettingsStore settingsStore;
+    private float offset = 0;
+
+    @Setup
+    public void setUp() {
+        preferences = new FakeSharedPreferences();
+        Set<String> active = new HashSet<>();
+        if (!directions.isEmpty()) {
+            active.addAll(Arrays.asList(directions.split(",")));
+        }
+        preferences.edit().putStringSet(KEY_ACTIVE_DIRECTION, active).apply();
+        settingsStore = new GridSettingsStore(preferences);
+    }
+
+    @Benchmark
+    public float resolveDirections() {
+        offset = (offset + 1) % 32;
+        GridSettings settings = settingsStore.get();
+        return settings.dx * offset + settings.dy * offset;
+    }
+
+    @Benchmark
+    public GridSettings loadSettings() {
+        return GridSettings.load(preferences);
+    }
+}
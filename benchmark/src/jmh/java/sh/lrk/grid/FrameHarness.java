@@ -0,0 +1,302 @@
+package sh.lrk.grid;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Typeface;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Renders watch face frames headlessly with a virtual clock and compares selected frames with
+ * golden images. Drawing goes through the same painters as the engine's onDraw, rasterized by the
+ * Java2D backend of the fake canvas, and the render time of every frame is reported.
+ * <p>
+ * Arguments: {@code --golden <dir> --out <dir> [--frames <n>] [--tolerance <fraction>]
+ * [--record]}. With {@code --record} the rendered frames replace the golden images. The exit
+ * status is 1 if a frame differs from its golden image or has none.
+ */
+public class FrameHarness {
+    /* Virtual clock: 30 fps from 10:09:30 on a fixed day, UTC. */
+    private static final long START_MILLIS = 1577873370000L;
+    private static final long FRAME_NANOS = 33_333_333L;
+    private static final long START_NANOS = 1_000_000_000L;
+
+    /* A pixel differs if any channel is further apart than this, fonts and AA vary by JDK. */
+    private static final int CHANNEL_TOLERANCE = 48;
+
+    /* An image theme whose ambient tint isn't white. */
+    private static final Theme SUNSET = new Theme(
+            Color.rgb(255, 120, 0), Color.rgb(128, 32, 0), Color.WHITE, Color.rgb(255, 170, 90));
+
+    private static final Scenario[] SCENARIOS = {
+            new Scenario("flat_390").size(390).pattern(GridPatternType.FLAT).directions(GridDirection.DOWN, GridDirection.RIGHT),
+            new Scenario("flat_320_muted").size(320).pattern(GridPatternType.FLAT).directions(GridDirection.UP).muted(),
+            new Scenario("flat_454_12h").size(454).pattern(GridPatternType.FLAT).directions(GridDirection.LEFT).use12h(),
+            new Scenario("perspective_390").size(390).pattern(GridPatternType.PERSPECTIVE).directions(GridDirection.DOWN),
+            new Scenario("perspective_390_atlas").size(390).pattern(GridPatternType.PERSPECTIVE).directions(GridDirection.DOWN).frameAtlas(8),
+            new Scenario("hex_390").size(390).pattern(GridPatternType.HEX).directions(GridDirection.UP, GridDirection.LEFT),
+            new Scenario("diagonal_390").size(390).pattern(GridPatternType.DIAGONAL).directions(GridDirection.RIGHT),
+            new Scenario("ambient_390").size(390).pattern(GridPatternType.FLAT).ambient(false, false),
+            new Scenario("ambient_390_lowbit_burnin").size(390).pattern(GridPatternType.FLAT).ambient(true, true),
+            new Scenario("ambient_390_theme").size(390).pattern(GridPatternType.FLAT).theme(SUNSET).ambient(false, false),
+            new Scenario("ambient_390_lowbit_theme").size(390).pattern(GridPatternType.FLAT).theme(SUNSET).ambient(true, false),
+    };
+
+    public static void main(String[] args) throws IOException {
+        File goldenDir = null;
+        File outDir = new File("build/frames");
+        int frames = 30;
+        double tolerance = 0.002;
+        boolean record = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--golden":
+                    goldenDir = new File(args[++i]);
+                    break;
+                case "--out":
+                    outDir = new File(args[++i]);
+                    break;
+                case "--frames":
+                    frames = Integer.parseInt(args[++i]);
+                    break;
+                case "--tolerance":
+                    tolerance = Double.parseDouble(args[++i]);
+                    break;
+                case "--record":
+                    record = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument " + args[i]);
+            }
+        }
+        if (goldenDir == null) {
+            throw new IllegalArgumentException("--golden is required");
+        }
+        if (!outDir.isDirectory() && !outDir.mkdirs()) {
+            throw new IOException("Can't create " + outDir);
+        }
+        if (record && !goldenDir.isDirectory() && !goldenDir.mkdirs()) {
+            throw new IOException("Can't create " + goldenDir);
+        }
+
+        Bitmap.setPixelStorageEnabled(true);
+        int failures = 0;
+        System.out.println(String.format(Locale.ROOT, "%-28s %6s %9s %9s %9s %9s",
+                "scenario", "frames", "mean ms", "p50 ms", "p95 ms", "max ms"));
+        for (Scenario scenario : SCENARIOS) {
+            failures += run(scenario, frames, goldenDir, outDir, tolerance, record);
+        }
+        if (failures > 0) {
+            System.out.println(failures + " frame(s) don't match their golden image, see " + outDir);
+            System.exit(1);
+        }
+    }
+
+    private static int run(Scenario scenario, int frames, File goldenDir, File outDir,
+                           double tolerance, boolean record) throws IOException {
+        FrameRenderer renderer = new FrameRenderer(scenario);
+        Bitmap frame = Bitmap.createBitmap(scenario.size, scenario.size, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(frame);
+        /* First, middle and last frame are compared, the others are only timed. */
+        int[] keyFrames = {0, frames / 2, frames - 1};
+        long[] renderNanos = new long[frames];
+        int failures = 0;
+
+        for (int i = 0; i < frames; i++) {
+            long start = System.nanoTime();
+            renderer.draw(canvas, START_MILLIS + i * FRAME_NANOS / 1_000_000L, START_NANOS + i * FRAME_NANOS);
+            renderNanos[i] = System.nanoTime() - start;
+
+            if (Arrays.binarySearch(keyFrames, i) < 0) {
+                continue;
+            }
+            String name = String.format(Locale.ROOT, "%s_%03d.png", scenario.name, i);
+            ImageIO.write(frame.getImage(), "png", new File(outDir, name));
+            File golden = new File(goldenDir, name);
+            if (record) {
+                ImageIO.write(frame.getImage(), "png", golden);
+            } else if (!golden.isFile()) {
+                System.out.println("Missing golden image " + golden);
+                failures++;
+            } else if (!matches(ImageIO.read(golden), frame.getImage(), tolerance,
+                    new File(outDir, "diff_" + name))) {
+                System.out.println("Frame differs from " + golden);
+                failures++;
+            }
+        }
+
+        Arrays.sort(renderNanos);
+        long total = 0;
+        for (long nanos : renderNanos) {
+            total += nanos;
+        }
+        System.out.println(String.format(Locale.ROOT, "%-28s %6d %9.3f %9.3f %9.3f %9.3f",
+                scenario.name, frames, total / 1e6 / frames, renderNanos[frames / 2] / 1e6,
+                renderNanos[(int) Math.min(frames - 1, Math.ceil(frames * 0.95) - 1)] / 1e6,
+                renderNanos[frames - 1] / 1e6));
+        return failures;
+    }
+
+    /**
+     * Compares two frames, writes a diff image with differing pixels in red if they don't match.
+     */
+    private static boolean matches(BufferedImage expected, BufferedImage actual, double tolerance,
+                                   File diffFile) throws IOException {
+        int width = actual.getWidth();
+        int height = actual.getHeight();
+        if (expected.getWidth() != width || expected.getHeight() != height) {
+            return false;
+        }
+        BufferedImage diff = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int differing = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int a = expected.getRGB(x, y);
+                int b = actual.getRGB(x, y);
+                if (channelDistance(a, b) > CHANNEL_TOLERANCE) {
+                    differing++;
+                    diff.setRGB(x, y, 0xFF0000);
+                } else {
+                    diff.setRGB(x, y, (b >> 2) & 0x3F3F3F);
+                }
+            }
+        }
+        if (differing > tolerance * width * height) {
+            ImageIO.write(diff, "png", diffFile);
+            return false;
+        }
+        return true;
+    }
+
+    private static int channelDistance(int a, int b) {
+        int distance = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            distance = Math.max(distance, Math.abs(((a >>> shift) & 0xFF) - ((b >>> shift) & 0xFF)));
+        }
+        return distance;
+    }
+
+    /**
+     * The engine's drawFrame with the paints it sets up, minus the framework.
+     */
+    private static final class FrameRenderer {
+        private final Scenario scenario;
+        private final Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"), Locale.ROOT);
+        private final GridPainter gridPainter;
+        private final TimePainter timePainter;
+        private final AmbientRenderer ambientRenderer;
+
+        FrameRenderer(Scenario scenario) {
+            this.scenario = scenario;
+            FakeSharedPreferences preferences = new FakeSharedPreferences();
+            HashSet<String> directions = new HashSet<>();
+            for (GridDirection direction : scenario.directions) {
+                directions.add(direction.name());
+            }
+            preferences.edit()
+                    .putStringSet(GridPreferences.KEY_ACTIVE_DIRECTION, directions)
+                    .putBoolean(GridPreferences.KEY_USE_24H, scenario.use24h)
+                    .putString(GridPreferences.KEY_GRID_PATTERN, scenario.pattern.name())
+                    .putInt(GridPreferences.KEY_FRAME_ATLAS_MB, scenario.frameAtlasMb)
+                    .apply();
+            GridSettingsStore settingsStore = new GridSettingsStore(preferences);
+
+            ThemePaints themePaints = new ThemePaints(scenario.theme, Typeface.MONOSPACE);
+            PaintSet paints = themePaints.get(false, scenario.muted, false, false);
+            gridPainter = new GridPainter(paints.grid, settingsStore);
+            gridPainter.setTileCacheEnabled(true);
+
+            timePainter = new TimePainter(paints::getTextPaint);
+            timePainter.setLayerCacheEnabled(true);
+            timePainter.setUse24h(scenario.use24h);
+
+            ambientRenderer = new AmbientRenderer(themePaints.get(true, false,
+                    scenario.lowBitAmbient, scenario.burnInProtection));
+            ambientRenderer.setUse24h(scenario.use24h);
+            ambientRenderer.setPattern(scenario.pattern, GridPreferences.DEF_LINE_COUNT);
+            ambientRenderer.setProperties(scenario.lowBitAmbient, scenario.burnInProtection);
+        }
+
+        void draw(Canvas canvas, long timeMillis, long frameTimeNanos) {
+            calendar.setTimeInMillis(timeMillis);
+            float center = scenario.size / 2f;
+            if (scenario.ambient) {
+                ambientRenderer.draw(canvas, calendar, center, center);
+                return;
+            }
+            gridPainter.drawBackgroundLayer(canvas);
+            gridPainter.drawGridLayer(canvas, frameTimeNanos);
+            timePainter.drawTime(canvas, calendar, center, center);
+        }
+    }
+
+    private static final class Scenario {
+        final String name;
+        int size = 390;
+        GridPatternType pattern = GridPatternType.FLAT;
+        GridDirection[] directions = {};
+        Theme theme = Theme.DEFAULT;
+        boolean use24h = true;
+        boolean muted = false;
+        boolean ambient = false;
+        boolean lowBitAmbient = false;
+        boolean burnInProtection = false;
+        int frameAtlasMb = 0;
+
+        Scenario(String name) {
+            this.name = name;
+        }
+
+        Scenario size(int size) {
+            this.size = size;
+            return this;
+        }
+
+        Scenario pattern(GridPatternType pattern) {
+            this.pattern = pattern;
+            return this;
+        }
+
+        Scenario directions(GridDirection... directions) {
+            this.directions = directions;
+            return this;
+        }
+
+        Scenario theme(Theme theme) {
+            this.theme = theme;
+            return this;
+        }
+
+        Scenario use12h() {
+            use24h = false;
+            return this;
+        }
+
+        Scenario muted() {
+            muted = true;
+            return this;
+        }
+
+        Scenario frameAtlas(int budgetMb) {
+            frameAtlasMb = budgetMb;
+            return this;
+        }
+
+        Scenario ambient(boolean lowBitAmbient, boolean burnInProtection) {
+            ambient = true;
+            this.lowBitAmbient = lowBitAmbient;
+            this.burnInProtection = burnInProtection;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package sh.lrk.grid;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RenderNode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * One invocation is one frame of the grid layer.
+ */
+@State(Scope.Thread)
+public class GridPainterBenchmark {
+
+    @Param({"320", "390", "454"})
+    public int screenSize;
+
+    @Param({"false", "true"})
+    public boolean tileCache;
+
+    /* Draw into a RenderNode's recording canvas, like the hardware render mode does. */
+    @Param({"false", "true"})
+    public boolean hardware;
+
+    @Param({"FLAT", "PERSPECTIVE", "HEX", "DIAGONAL"})
+    public GridPatternType pattern;
+
+    /* Budget of the frame atlas, it only plays back patterns that aren't tiled. */
+    @Param({"0", "4"})
+    public int frameAtlasMb;
+
+    private Canvas canvas;
+    private GridPainter gridPainter;
+
+    @Setup
+    public void setUp() {
+        if (hardware) {
+            canvas = new RenderNode("frame").beginRecording(screenSize, screenSize);
+        } else {
+            canvas = new Canvas(Bitmap.createBitmap(screenSize, screenSize, Bitmap.Config.ARGB_8888));
+        }
+        Paint gridPaint = new Paint();
+        gridPaint.setColor(Color.BLUE);
+        gridPaint.setAntiAlias(true);
+        gridPaint.setShadowLayer(2f, 0, 0, Color.argb(255, 0, 0, 128));
+        FakeSharedPreferences preferences = new FakeSharedPreferences();
+        preferences.edit()
+                .putString(GridPreferences.KEY_GRID_PATTERN, pattern.name())
+                .putInt(GridPreferences.KEY_FRAME_ATLAS_MB, frameAtlasMb)
+                .apply();
+        gridPainter = new GridPainter(gridPaint, new GridSettingsStore(preferences));
+        gridPainter.setTileCacheEnabled(tileCache);
+    }
+
+    @Benchmark
+    public double drawGridLayer() {
+        gridPainter.drawGridLayer(canvas);
+        return canvas.getChecksum();
+    }
+}
@@ -0,0 +1,58 @@
+package sh.lrk.grid;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.text.TextPaint;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Calendar;
+
+/**
+ * One invocation of {@link #drawTime()} is the text part of one frame.
+ */
+@State(Scope.Thread)
+public class TimePainterBenchmark {
+
+    @Param({"320", "390", "454"})
+    public int screenSize;
+
+    @Param({"true", "false"})
+    public boolean use24h;
+
+    @Param({"false", "true"})
+    public boolean layerCache;
+
+    private Canvas canvas;
+    private Calendar calendar;
+    private TimePainter timePainter;
+    private float center;
+    private final char[] text = {'1', '2', ':', '3', '4'};
+
+    @Setup
+    public void setUp() {
+        canvas = new Canvas(Bitmap.createBitmap(screenSize, screenSize, Bitmap.Config.ARGB_8888));
+        calendar = Calendar.getInstance();
+        timePainter = new TimePainter(TimePainter.resizing(new TextPaint()));
+        timePainter.setUse24h(use24h);
+        timePainter.setLayerCacheEnabled(layerCache);
+        center = screenSize / 2f;
+        /* Lays out the text once so the glyph advances are measured. */
+        timePainter.drawTime(canvas, calendar, center, center);
+    }
+
+    @Benchmark
+    public double drawTime() {
+        timePainter.drawTime(canvas, calendar, center, center);
+        return canvas.getChecksum();
+    }
+
+    @Benchmark
+    public float getTextWidth() {
+        return timePainter.getTextWidth(text, text.length);
+    }
+}
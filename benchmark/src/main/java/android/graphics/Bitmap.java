@@ -0,0 +1,91 @@
+package android.graphics;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Pixel-less bitmap, only tracks its size so painters can size and blit their caches. The frame
+ * harness enables pixel storage, bitmaps created after that are backed by an image that
+ * canvases rasterize into.
+ */
+public final class Bitmap {
+    public enum Config {
+        ALPHA_8, RGB_565, ARGB_4444, ARGB_8888
+    }
+
+    private final int width;
+    private final int height;
+    private final Config config;
+    private final BufferedImage image;
+    private boolean recycled = false;
+
+    private static volatile boolean pixelStorageEnabled = false;
+
+    private Bitmap(int width, int height, Config config) {
+        this.width = width;
+        this.height = height;
+        this.config = config;
+        /* ALPHA_8 is kept as ARGB as well, only the alpha channel is used. */
+        image = pixelStorageEnabled ? new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB) : null;
+    }
+
+    /**
+     * Not part of the Android API. Makes new bitmaps keep pixels, benchmarks leave this off so
+     * drawing stays a cheap recording.
+     */
+    public static void setPixelStorageEnabled(boolean enabled) {
+        pixelStorageEnabled = enabled;
+    }
+
+    public static Bitmap createBitmap(int width, int height, Config config) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("width and height must be > 0");
+        }
+        return new Bitmap(width, height, config);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public Config getConfig() {
+        return config;
+    }
+
+    public int getByteCount() {
+        return width * height * (config == Config.ARGB_8888 ? 4 : config == Config.ALPHA_8 ? 1 : 2);
+    }
+
+    public void eraseColor(int color) {
+        if (image != null) {
+            int[] pixels = new int[width];
+            Arrays.fill(pixels, color);
+            for (int y = 0; y < height; y++) {
+                image.setRGB(0, y, width, 1, pixels, 0, width);
+            }
+        }
+    }
+
+    public int getPixel(int x, int y) {
+        return image != null ? image.getRGB(x, y) : Color.TRANSPARENT;
+    }
+
+    /**
+     * Not part of the Android API, the pixels or null without pixel storage.
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    public void recycle() {
+        recycled = true;
+    }
+
+    public boolean isRecycled() {
+        return recycled;
+    }
+}
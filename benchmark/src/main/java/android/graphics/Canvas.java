@@ -0,0 +1,154 @@
+package android.graphics;
+
+/**
+ * Recording canvas: it counts draw calls and folds their coordinates into a checksum instead of
+ * rasterizing, so benchmarks measure the painters and not a software renderer. Recording never
+ * allocates. Only bitmaps with pixel storage (see {@link Bitmap#setPixelStorageEnabled(boolean)})
+ * are rasterized into as well.
+ */
+public class Canvas {
+    private Bitmap bitmap;
+    private Raster raster;
+    private int saveCount = 0;
+    private int lineCount = 0;
+    private int bitmapCount = 0;
+    private int textCount = 0;
+    private int fillCount = 0;
+    private double checksum = 0;
+
+    public Canvas() {
+    }
+
+    public Canvas(Bitmap bitmap) {
+        setBitmap(bitmap);
+    }
+
+    public void setBitmap(Bitmap bitmap) {
+        this.bitmap = bitmap;
+        raster = bitmap != null && bitmap.getImage() != null ? new Raster(bitmap.getImage()) : null;
+    }
+
+    public int getWidth() {
+        return bitmap != null ? bitmap.getWidth() : 0;
+    }
+
+    public int getHeight() {
+        return bitmap != null ? bitmap.getHeight() : 0;
+    }
+
+    public boolean isHardwareAccelerated() {
+        return false;
+    }
+
+    public int save() {
+        if (raster != null) {
+            raster.save();
+        }
+        return ++saveCount;
+    }
+
+    public void restore() {
+        if (raster != null) {
+            raster.restore();
+        }
+        saveCount--;
+    }
+
+    public void translate(float dx, float dy) {
+        if (raster != null) {
+            raster.translate(dx, dy);
+        }
+        checksum += dx + dy;
+    }
+
+    public boolean clipRect(float left, float top, float right, float bottom) {
+        if (raster != null) {
+            raster.clipRect(left, top, right, bottom);
+        }
+        checksum += left + top + right + bottom;
+        return true;
+    }
+
+    public void drawColor(int color) {
+        if (raster != null) {
+            raster.drawColor(color);
+        }
+        fillCount++;
+        checksum += color;
+    }
+
+    public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+        if (raster != null) {
+            raster.drawLine(startX, startY, stopX, stopY, paint);
+        }
+        lineCount++;
+        checksum += startX + startY + stopX + stopY;
+    }
+
+    public void drawLines(float[] pts, int offset, int count, Paint paint) {
+        for (int i = offset; i + 3 < offset + count; i += 4) {
+            drawLine(pts[i], pts[i + 1], pts[i + 2], pts[i + 3], paint);
+        }
+    }
+
+    public void drawLines(float[] pts, Paint paint) {
+        drawLines(pts, 0, pts.length, paint);
+    }
+
+    public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+        if (raster != null) {
+            raster.drawBitmap(bitmap, left, top, paint);
+        }
+        bitmapCount++;
+        checksum += left + top + bitmap.getWidth() + bitmap.getHeight();
+    }
+
+    public void drawRenderNode(RenderNode renderNode) {
+        bitmapCount++;
+        checksum += renderNode.getTranslationX() + renderNode.getTranslationY();
+    }
+
+    public void drawText(String text, float x, float y, Paint paint) {
+        if (raster != null) {
+            raster.drawText(text.toCharArray(), 0, text.length(), x, y, paint);
+        }
+        textCount++;
+        checksum += x + y + text.length();
+    }
+
+    public void drawText(char[] text, int index, int count, float x, float y, Paint paint) {
+        if (raster != null) {
+            raster.drawText(text, index, count, x, y, paint);
+        }
+        textCount++;
+        checksum += x + y + count;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public int getBitmapCount() {
+        return bitmapCount;
+    }
+
+    public int getTextCount() {
+        return textCount;
+    }
+
+    public int getFillCount() {
+        return fillCount;
+    }
+
+    public double getChecksum() {
+        return checksum;
+    }
+
+    public void resetRecording() {
+        lineCount = 0;
+        bitmapCount = 0;
+        textCount = 0;
+        fillCount = 0;
+        checksum = 0;
+    }
+}
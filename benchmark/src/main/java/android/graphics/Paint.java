@@ -0,0 +1,171 @@
+package android.graphics;
+
+/**
+ * Paint that keeps its state in fields and measures every glyph as a fixed fraction of the
+ * text size, which is enough to exercise the layout code deterministically.
+ */
+public class Paint {
+    public static final int ANTI_ALIAS_FLAG = 0x01;
+    private static final float GLYPH_ADVANCE = 0.6f;
+
+    public enum Align {
+        LEFT, CENTER, RIGHT
+    }
+
+    public enum Style {
+        FILL, STROKE, FILL_AND_STROKE
+    }
+
+    public static class FontMetrics {
+        public float top;
+        public float ascent;
+        public float descent;
+        public float bottom;
+        public float leading;
+    }
+
+    private int color = Color.BLACK;
+    private boolean antiAlias;
+    private float textSize = 12f;
+    private float strokeWidth = 0f;
+    private float shadowRadius = 0f;
+    private Align textAlign = Align.LEFT;
+    private Style style = Style.FILL;
+    private Typeface typeface;
+
+    public Paint() {
+    }
+
+    public Paint(int flags) {
+        antiAlias = (flags & ANTI_ALIAS_FLAG) != 0;
+    }
+
+    public Paint(Paint paint) {
+        set(paint);
+    }
+
+    public void set(Paint src) {
+        color = src.color;
+        antiAlias = src.antiAlias;
+        textSize = src.textSize;
+        strokeWidth = src.strokeWidth;
+        shadowRadius = src.shadowRadius;
+        textAlign = src.textAlign;
+        style = src.style;
+        typeface = src.typeface;
+    }
+
+    public int getColor() {
+        return color;
+    }
+
+    public void setColor(int color) {
+        this.color = color;
+    }
+
+    public int getAlpha() {
+        return Color.alpha(color);
+    }
+
+    public void setAlpha(int alpha) {
+        color = (color & 0x00FFFFFF) | (alpha << 24);
+    }
+
+    public boolean isAntiAlias() {
+        return antiAlias;
+    }
+
+    public void setAntiAlias(boolean antiAlias) {
+        this.antiAlias = antiAlias;
+    }
+
+    public float getStrokeWidth() {
+        return strokeWidth;
+    }
+
+    public void setStrokeWidth(float strokeWidth) {
+        this.strokeWidth = strokeWidth;
+    }
+
+    public Style getStyle() {
+        return style;
+    }
+
+    public void setStyle(Style style) {
+        this.style = style;
+    }
+
+    public void setShadowLayer(float radius, float dx, float dy, int shadowColor) {
+        shadowRadius = radius;
+    }
+
+    public void clearShadowLayer() {
+        shadowRadius = 0f;
+    }
+
+    public float getShadowLayerRadius() {
+        return shadowRadius;
+    }
+
+    public float getTextSize() {
+        return textSize;
+    }
+
+    public void setTextSize(float textSize) {
+        this.textSize = textSize;
+    }
+
+    public Align getTextAlign() {
+        return textAlign;
+    }
+
+    public void setTextAlign(Align align) {
+        textAlign = align;
+    }
+
+    public Typeface getTypeface() {
+        return typeface;
+    }
+
+    public Typeface setTypeface(Typeface typeface) {
+        this.typeface = typeface;
+        return typeface;
+    }
+
+    public float getFontMetrics(FontMetrics metrics) {
+        if (metrics != null) {
+            metrics.top = -textSize;
+            metrics.ascent = -textSize * 0.8f;
+            metrics.descent = textSize * 0.2f;
+            metrics.bottom = textSize * 0.25f;
+            metrics.leading = 0f;
+        }
+        return textSize * 1.25f;
+    }
+
+    public int getTextWidths(String text, float[] widths) {
+        return getTextWidths(text, 0, text.length(), widths);
+    }
+
+    public int getTextWidths(String text, int start, int end, float[] widths) {
+        for (int i = start; i < end; i++) {
+            widths[i - start] = textSize * GLYPH_ADVANCE;
+        }
+        return end - start;
+    }
+
+    public int getTextWidths(char[] text, int index, int count, float[] widths) {
+        for (int i = 0; i < count; i++) {
+            widths[i] = textSize * GLYPH_ADVANCE;
+        }
+        return count;
+    }
+
+    public float measureText(String text) {
+        return text.length() * textSize * GLYPH_ADVANCE;
+    }
+
+    public float measureText(char[] text, int index, int count) {
+        return count * textSize * GLYPH_ADVANCE;
+    }
+}
@@ -0,0 +1,134 @@
+package android.graphics;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.font.TextLayout;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Java2D backend of a {@link Canvas} drawing into a bitmap with pixel storage. It covers what the
+ * painters use: lines, colors, bitmaps, text and clip/transform state. Shadow layers are ignored
+ * and text always uses the JDK's monospaced font, whose advances match {@link Paint}'s fixed
+ * glyph advance.
+ */
+final class Raster {
+    private final BufferedImage image;
+    private final Graphics2D graphics;
+    private final List<AffineTransform> savedTransforms = new ArrayList<>();
+    /* Clips in device space, null for no clip. */
+    private final List<Shape> savedClips = new ArrayList<>();
+    private final Line2D.Float line = new Line2D.Float();
+
+    Raster(BufferedImage image) {
+        this.image = image;
+        graphics = image.createGraphics();
+    }
+
+    void save() {
+        AffineTransform transform = graphics.getTransform();
+        Shape clip = graphics.getClip();
+        savedTransforms.add(transform);
+        savedClips.add(clip != null ? transform.createTransformedShape(clip) : null);
+    }
+
+    void restore() {
+        if (!savedTransforms.isEmpty()) {
+            int last = savedTransforms.size() - 1;
+            graphics.setTransform(new AffineTransform());
+            graphics.setClip(savedClips.remove(last));
+            graphics.setTransform(savedTransforms.remove(last));
+        }
+    }
+
+    void translate(float dx, float dy) {
+        graphics.translate(dx, dy);
+    }
+
+    void clipRect(float left, float top, float right, float bottom) {
+        graphics.clip(new Rectangle2D.Float(left, top, right - left, bottom - top));
+    }
+
+    void drawColor(int color) {
+        AffineTransform transform = graphics.getTransform();
+        graphics.setTransform(new AffineTransform());
+        graphics.setComposite(AlphaComposite.SrcOver);
+        graphics.setColor(new java.awt.Color(color, true));
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        graphics.setTransform(transform);
+    }
+
+    void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+        applyPaint(paint);
+        line.setLine(startX, startY, stopX, stopY);
+        graphics.draw(line);
+    }
+
+    void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+        BufferedImage source = bitmap.getImage();
+        if (source == null) {
+            return;
+        }
+        int alpha = paint != null ? paint.getAlpha() : 255;
+        if (bitmap.getConfig() == Bitmap.Config.ALPHA_8) {
+            /* Alpha bitmaps are drawn in the paint's color. */
+            source = tint(source, paint != null ? paint.getColor() : Color.BLACK);
+        }
+        graphics.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha / 255f));
+        graphics.drawImage(source, AffineTransform.getTranslateInstance(left, top), null);
+        graphics.setComposite(AlphaComposite.SrcOver);
+    }
+
+    void drawText(char[] text, int index, int count, float x, float y, Paint paint) {
+        applyPaint(paint);
+        String string = new String(text, index, count);
+        float width = paint.measureText(text, index, count);
+        if (paint.getTextAlign() == Paint.Align.CENTER) {
+            x -= width / 2f;
+        } else if (paint.getTextAlign() == Paint.Align.RIGHT) {
+            x -= width;
+        }
+        Font font = new Font(Font.MONOSPACED, Font.PLAIN, 1).deriveFont(paint.getTextSize());
+        if (paint.getStyle() == Paint.Style.STROKE) {
+            TextLayout layout = new TextLayout(string, font, graphics.getFontRenderContext());
+            graphics.draw(layout.getOutline(AffineTransform.getTranslateInstance(x, y)));
+        } else {
+            graphics.setFont(font);
+            graphics.drawString(string, x, y);
+        }
+    }
+
+    private void applyPaint(Paint paint) {
+        graphics.setComposite(AlphaComposite.SrcOver);
+        graphics.setColor(new java.awt.Color(paint.getColor(), true));
+        graphics.setStroke(new BasicStroke(Math.max(1f, paint.getStrokeWidth())));
+        Object hint = paint.isAntiAlias() ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF;
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, hint);
+        /* Aliased lines are normalized onto the pixel grid, like Skia's hairlines. */
+        graphics.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, paint.isAntiAlias()
+                ? RenderingHints.VALUE_STROKE_PURE : RenderingHints.VALUE_STROKE_NORMALIZE);
+        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, paint.isAntiAlias()
+                ? RenderingHints.VALUE_TEXT_ANTIALIAS_ON : RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+    }
+
+    private static BufferedImage tint(BufferedImage source, int color) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int[] pixels = source.getRGB(0, 0, width, height, null, 0, width);
+        int rgb = color & 0x00FFFFFF;
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = (pixels[i] & 0xFF000000) | rgb;
+        }
+        BufferedImage tinted = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        tinted.setRGB(0, 0, width, height, pixels, 0, width);
+        return tinted;
+    }
+}
@@ -0,0 +1,30 @@
+package android.graphics;
+
+/**
+ * Canvas handed out by {@link RenderNode#beginRecording(int, int)}, reports itself as hardware
+ * accelerated like the framework one does.
+ */
+public final class RecordingCanvas extends Canvas {
+    private final int width;
+    private final int height;
+
+    RecordingCanvas(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public boolean isHardwareAccelerated() {
+        return true;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+}
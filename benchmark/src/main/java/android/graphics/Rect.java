@@ -0,0 +1,70 @@
+package android.graphics;
+
+public final class Rect {
+    public int left;
+    public int top;
+    public int right;
+    public int bottom;
+
+    public Rect() {
+    }
+
+    public Rect(int left, int top, int right, int bottom) {
+        set(left, top, right, bottom);
+    }
+
+    public void set(int left, int top, int right, int bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    public void set(Rect src) {
+        set(src.left, src.top, src.right, src.bottom);
+    }
+
+    public void setEmpty() {
+        set(0, 0, 0, 0);
+    }
+
+    public boolean isEmpty() {
+        return left >= right || top >= bottom;
+    }
+
+    public int width() {
+        return right - left;
+    }
+
+    public int height() {
+        return bottom - top;
+    }
+
+    public boolean intersect(int left, int top, int right, int bottom) {
+        if (this.left < right && left < this.right && this.top < bottom && top < this.bottom) {
+            this.left = Math.max(this.left, left);
+            this.top = Math.max(this.top, top);
+            this.right = Math.min(this.right, right);
+            this.bottom = Math.min(this.bottom, bottom);
+            return true;
+        }
+        return false;
+    }
+
+    public void union(Rect r) {
+        union(r.left, r.top, r.right, r.bottom);
+    }
+
+    public void union(int left, int top, int right, int bottom) {
+        if (left < right && top < bottom) {
+            if (this.left < this.right && this.top < this.bottom) {
+                this.left = Math.min(this.left, left);
+                this.top = Math.min(this.top, top);
+                this.right = Math.max(this.right, right);
+                this.bottom = Math.max(this.bottom, bottom);
+            } else {
+                set(left, top, right, bottom);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package android.graphics;
+
+public final class RenderNode {
+    private final String name;
+    private int left;
+    private int top;
+    private int right;
+    private int bottom;
+    private float translationX;
+    private float translationY;
+    private boolean hasDisplayList = false;
+
+    public RenderNode(String name) {
+        this.name = name;
+    }
+
+    public boolean setPosition(int left, int top, int right, int bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+        return true;
+    }
+
+    public int getWidth() {
+        return right - left;
+    }
+
+    public int getHeight() {
+        return bottom - top;
+    }
+
+    public boolean setTranslationX(float translationX) {
+        this.translationX = translationX;
+        return true;
+    }
+
+    public boolean setTranslationY(float translationY) {
+        this.translationY = translationY;
+        return true;
+    }
+
+    public float getTranslationX() {
+        return translationX;
+    }
+
+    public float getTranslationY() {
+        return translationY;
+    }
+
+    public RecordingCanvas beginRecording(int width, int height) {
+        return new RecordingCanvas(width, height);
+    }
+
+    public void endRecording() {
+        hasDisplayList = true;
+    }
+
+    public boolean hasDisplayList() {
+        return hasDisplayList;
+    }
+
+    public void discardDisplayList() {
+        hasDisplayList = false;
+    }
+}
@@ -0,0 +1,13 @@
+package android.os;
+
+public class Build {
+    public static class VERSION {
+        /* Not a constant, so both sides of SDK checks stay compiled in. */
+        public static final int SDK_INT = Integer.getInteger("android.sdk", VERSION_CODES.Q);
+    }
+
+    public static class VERSION_CODES {
+        public static final int P = 28;
+        public static final int Q = 29;
+    }
+}
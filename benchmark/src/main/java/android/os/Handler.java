@@ -0,0 +1,91 @@
+package android.os;
+
+/**
+ * Sends work to the {@link Looper} it was created for. On the main looper it runs right away, the
+ * benchmarks have no event loop there, see {@link SystemClock} for the tests.
+ */
+public class Handler {
+    public interface Callback {
+        boolean handleMessage(Message msg);
+    }
+
+    private final Looper looper;
+    private final Callback callback;
+
+    public Handler(Looper looper) {
+        this(looper, null);
+    }
+
+    public Handler(Looper looper, Callback callback) {
+        this.looper = looper;
+        this.callback = callback;
+    }
+
+    public final Looper getLooper() {
+        return looper;
+    }
+
+    public final boolean post(Runnable r) {
+        return postDelayed(r, 0);
+    }
+
+    public final boolean postDelayed(Runnable r, long delayMillis) {
+        return sendMessageDelayed(Message.obtain(this, r), delayMillis);
+    }
+
+    public final boolean postAtTime(Runnable r, long uptimeMillis) {
+        Message msg = Message.obtain(this, r);
+        return looper.enqueue(msg, uptimeMillis);
+    }
+
+    public final void removeCallbacks(Runnable r) {
+        looper.remove(this, -1, r, null);
+    }
+
+    public final Message obtainMessage(int what) {
+        return Message.obtain(this, what, 0, 0, null);
+    }
+
+    public final Message obtainMessage(int what, Object obj) {
+        return Message.obtain(this, what, 0, 0, obj);
+    }
+
+    public final Message obtainMessage(int what, int arg1, int arg2) {
+        return Message.obtain(this, what, arg1, arg2, null);
+    }
+
+    public final boolean sendEmptyMessage(int what) {
+        return sendMessage(obtainMessage(what));
+    }
+
+    public final boolean sendMessage(Message msg) {
+        return sendMessageDelayed(msg, 0);
+    }
+
+    public final boolean sendMessageDelayed(Message msg, long delayMillis) {
+        msg.target = this;
+        return looper.enqueue(msg, SystemClock.uptimeMillis() + Math.max(0, delayMillis));
+    }
+
+    public final void removeMessages(int what) {
+        looper.remove(this, what, null, null);
+    }
+
+    /**
+     * Removes all callbacks and messages whose obj is the token, or all of them for null.
+     */
+    public final void removeCallbacksAndMessages(Object token) {
+        looper.remove(this, -1, null, token);
+    }
+
+    public void dispatchMessage(Message msg) {
+        if (msg.callback != null) {
+            msg.callback.run();
+        } else if (callback == null || !callback.handleMessage(msg)) {
+            handleMessage(msg);
+        }
+    }
+
+    public void handleMessage(Message msg) {
+    }
+}
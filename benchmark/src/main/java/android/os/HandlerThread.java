@@ -0,0 +1,54 @@
+package android.os;
+
+/**
+ * A thread running a {@link Looper}.
+ */
+public class HandlerThread extends Thread {
+    private Looper looper;
+
+    public HandlerThread(String name) {
+        super(name);
+    }
+
+    @Override
+    public void run() {
+        Looper.prepare();
+        synchronized (this) {
+            looper = Looper.myLooper();
+            notifyAll();
+        }
+        Looper.loop();
+    }
+
+    /**
+     * Waits until the thread has started its looper, null if the thread isn't alive.
+     */
+    public Looper getLooper() {
+        if (!isAlive()) {
+            return null;
+        }
+        boolean interrupted = false;
+        synchronized (this) {
+            while (isAlive() && looper == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return looper;
+    }
+
+    public boolean quitSafely() {
+        Looper looper = getLooper();
+        if (looper == null) {
+            return false;
+        }
+        looper.quitSafely();
+        return true;
+    }
+}
@@ -0,0 +1,214 @@
+package android.os;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Message loop of a {@link HandlerThread}. The main looper has no thread of its own, work sent to
+ * it runs right away on the sending thread unless the manual {@link SystemClock} is on.
+ */
+public final class Looper {
+    private static final Looper MAIN = new Looper(false);
+    private static final ThreadLocal<Looper> CURRENT = new ThreadLocal<>();
+    /* The loopers of running threads. */
+    private static final List<Looper> THREAD_LOOPERS = new ArrayList<>();
+
+    private final boolean threaded;
+    private final PriorityQueue<Message> queue = new PriorityQueue<>();
+    private long sequence = 0;
+    private boolean quitting = false;
+    private boolean dispatching = false;
+
+    private Looper(boolean threaded) {
+        this.threaded = threaded;
+    }
+
+    public static Looper getMainLooper() {
+        return MAIN;
+    }
+
+    public static void prepare() {
+        if (CURRENT.get() != null) {
+            throw new RuntimeException("Only one Looper may be created per thread");
+        }
+        Looper looper = new Looper(true);
+        CURRENT.set(looper);
+        synchronized (THREAD_LOOPERS) {
+            THREAD_LOOPERS.add(looper);
+        }
+    }
+
+    public static Looper myLooper() {
+        return CURRENT.get();
+    }
+
+    public static void loop() {
+        Looper me = myLooper();
+        if (me == null) {
+            throw new RuntimeException("No Looper; Looper.prepare() wasn't called on this thread.");
+        }
+        try {
+            Message msg;
+            while ((msg = me.next()) != null) {
+                try {
+                    msg.target.dispatchMessage(msg);
+                } finally {
+                    me.endDispatch();
+                }
+            }
+        } finally {
+            synchronized (THREAD_LOOPERS) {
+                THREAD_LOOPERS.remove(me);
+            }
+        }
+    }
+
+    /**
+     * Delivers the messages that are already due, later ones are dropped.
+     */
+    public void quitSafely() {
+        synchronized (queue) {
+            quitting = true;
+            queue.notifyAll();
+        }
+    }
+
+    boolean enqueue(Message msg, long uptimeMillis) {
+        if (!threaded && !SystemClock.isManual()) {
+            msg.target.dispatchMessage(msg);
+            return true;
+        }
+        synchronized (queue) {
+            if (quitting) {
+                return false;
+            }
+            msg.when = uptimeMillis;
+            msg.sequence = sequence++;
+            queue.add(msg);
+            queue.notifyAll();
+            return true;
+        }
+    }
+
+    void remove(Handler target, int what, Runnable callback, Object obj) {
+        synchronized (queue) {
+            Iterator<Message> it = queue.iterator();
+            while (it.hasNext()) {
+                Message msg = it.next();
+                if (msg.target == target
+                        && (what < 0 || (msg.callback == null && msg.what == what))
+                        && (callback == null || msg.callback == callback)
+                        && (obj == null || msg.obj == obj)) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    void clear() {
+        synchronized (queue) {
+            queue.clear();
+        }
+    }
+
+    private Message next() {
+        synchronized (queue) {
+            while (true) {
+                long now = SystemClock.uptimeMillis();
+                Message head = queue.peek();
+                if (head != null && head.when <= now) {
+                    dispatching = true;
+                    return queue.poll();
+                }
+                if (quitting) {
+                    queue.clear();
+                    return null;
+                }
+                try {
+                    if (head == null || SystemClock.isManual()) {
+                        queue.wait();
+                    } else {
+                        queue.wait(head.when - now);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+        }
+    }
+
+    private void endDispatch() {
+        synchronized (queue) {
+            dispatching = false;
+        }
+    }
+
+    private boolean isIdle() {
+        synchronized (queue) {
+            Message head = queue.peek();
+            return !dispatching && (head == null || head.when > SystemClock.uptimeMillis());
+        }
+    }
+
+    private long headNanos() {
+        synchronized (queue) {
+            Message head = queue.peek();
+            return head == null ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(head.when);
+        }
+    }
+
+    /**
+     * Manual clock: runs the main looper's due messages on the calling thread and waits until
+     * no thread has a due message left.
+     */
+    static void awaitIdle() {
+        while (true) {
+            Message msg = MAIN.pollDue();
+            if (msg != null) {
+                msg.target.dispatchMessage(msg);
+                continue;
+            }
+            boolean idle = true;
+            synchronized (THREAD_LOOPERS) {
+                for (Looper looper : THREAD_LOOPERS) {
+                    idle &= looper.isIdle();
+                }
+            }
+            if (idle && MAIN.isIdle()) {
+                return;
+            }
+            Thread.yield();
+        }
+    }
+
+    static long nextDueNanos() {
+        long next = MAIN.headNanos();
+        synchronized (THREAD_LOOPERS) {
+            for (Looper looper : THREAD_LOOPERS) {
+                next = Math.min(next, looper.headNanos());
+            }
+        }
+        return next;
+    }
+
+    static void wakeAll() {
+        synchronized (THREAD_LOOPERS) {
+            for (Looper looper : THREAD_LOOPERS) {
+                synchronized (looper.queue) {
+                    looper.queue.notifyAll();
+                }
+            }
+        }
+    }
+
+    private Message pollDue() {
+        synchronized (queue) {
+            Message head = queue.peek();
+            return head != null && head.when <= SystemClock.uptimeMillis() ? queue.poll() : null;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package android.os;
+
+/**
+ * A message of a {@link Handler}, ordered by due time and then by the order it was sent in.
+ */
+public final class Message implements Comparable<Message> {
+    public int what;
+    public int arg1;
+    public int arg2;
+    public Object obj;
+
+    Handler target;
+    Runnable callback;
+    long when;
+    long sequence;
+
+    public static Message obtain() {
+        return new Message();
+    }
+
+    public static Message obtain(Handler h, int what, int arg1, int arg2, Object obj) {
+        Message msg = new Message();
+        msg.target = h;
+        msg.what = what;
+        msg.arg1 = arg1;
+        msg.arg2 = arg2;
+        msg.obj = obj;
+        return msg;
+    }
+
+    static Message obtain(Handler h, Runnable callback) {
+        Message msg = new Message();
+        msg.target = h;
+        msg.callback = callback;
+        return msg;
+    }
+
+    public void sendToTarget() {
+        target.sendMessage(this);
+    }
+
+    @Override
+    public int compareTo(Message other) {
+        int byTime = Long.compare(when, other.when);
+        return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+    }
+}
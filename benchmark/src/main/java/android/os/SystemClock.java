@@ -0,0 +1,63 @@
+package android.os;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uptime from {@link System#nanoTime()}, or from a manual clock that tests advance. While the
+ * manual clock is on, the main looper queues its messages as well and {@link #advance(long)} runs
+ * them on the calling thread, so the caller plays the main thread.
+ */
+public final class SystemClock {
+    /* Behind System.nanoTime(), so a delay measured against it always looks overdue. */
+    private static final long MANUAL_START_NANOS = System.nanoTime() - TimeUnit.HOURS.toNanos(1);
+
+    private static volatile boolean manual = false;
+    private static volatile long manualNanos;
+
+    private SystemClock() {
+    }
+
+    public static long uptimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(uptimeNanos());
+    }
+
+    /**
+     * Not in the framework, the fake Choreographer takes its vsync times from here.
+     */
+    public static long uptimeNanos() {
+        return manual ? manualNanos : System.nanoTime();
+    }
+
+    public static void useManualClock() {
+        manualNanos = MANUAL_START_NANOS;
+        manual = true;
+    }
+
+    public static void useRealClock() {
+        manual = false;
+        Looper.getMainLooper().clear();
+    }
+
+    static boolean isManual() {
+        return manual;
+    }
+
+    /**
+     * Moves the manual clock forward, stopping at every due message until all loopers are idle.
+     */
+    public static void advance(long millis) {
+        long target = manualNanos + TimeUnit.MILLISECONDS.toNanos(millis);
+        while (true) {
+            Looper.awaitIdle();
+            long next = Looper.nextDueNanos();
+            if (next > target) {
+                break;
+            }
+            manualNanos = Math.max(manualNanos, next);
+            Looper.wakeAll();
+        }
+        manualNanos = target;
+        Looper.wakeAll();
+        Looper.awaitIdle();
+    }
+}
@@ -0,0 +1,70 @@
+package android.view;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frame callbacks on a 60 Hz vsync grid of {@link SystemClock#uptimeNanos()}, delivered on the
+ * looper of the thread the instance belongs to. On a thread without a looper nothing is delivered, the caller drives
+ * {@link FrameCallback#doFrame(long)} itself.
+ */
+public final class Choreographer {
+    public interface FrameCallback {
+        void doFrame(long frameTimeNanos);
+    }
+
+    public static final long VSYNC_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+
+    private static final ThreadLocal<Choreographer> INSTANCE = new ThreadLocal<Choreographer>() {
+        @Override
+        protected Choreographer initialValue() {
+            Looper looper = Looper.myLooper();
+            return new Choreographer(looper != null ? new Handler(looper) : null);
+        }
+    };
+
+    private final Handler handler;
+    private final Map<FrameCallback, Runnable> pending = new HashMap<>();
+
+    private Choreographer(Handler handler) {
+        this.handler = handler;
+    }
+
+    public static Choreographer getInstance() {
+        return INSTANCE.get();
+    }
+
+    public void postFrameCallback(FrameCallback callback) {
+        postFrameCallbackDelayed(callback, 0);
+    }
+
+    public void postFrameCallbackDelayed(FrameCallback callback, long delayMillis) {
+        if (handler == null) {
+            return;
+        }
+        long now = SystemClock.uptimeNanos();
+        long due = now + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        long vsyncNanos = (due / VSYNC_NANOS + 1) * VSYNC_NANOS;
+        Runnable frame = () -> {
+            pending.remove(callback);
+            callback.doFrame(vsyncNanos);
+        };
+        removeFrameCallback(callback);
+        pending.put(callback, frame);
+        /* Due at the first millisecond that isn't before the vsync. */
+        long nanosPerMilli = TimeUnit.MILLISECONDS.toNanos(1);
+        handler.postAtTime(frame, (vsyncNanos + nanosPerMilli - 1) / nanosPerMilli);
+    }
+
+    public void removeFrameCallback(FrameCallback callback) {
+        Runnable frame = pending.remove(callback);
+        if (frame != null) {
+            handler.removeCallbacks(frame);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package android.view;
+
+public class Surface {
+    private volatile boolean valid = true;
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public void release() {
+        valid = false;
+    }
+}
@@ -0,0 +1,14 @@
+package android.view;
+
+import android.graphics.Canvas;
+
+/**
+ * The part of the holder the render loop draws through.
+ */
+public interface SurfaceHolder {
+    Surface getSurface();
+
+    Canvas lockCanvas();
+
+    void unlockCanvasAndPost(Canvas canvas);
+}
@@ -0,0 +1,77 @@
+package sh.lrk.grid;
+
+import android.view.Choreographer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives the scheduler with vsync timestamps directly, there is no looper on the test thread.
+ */
+public class FrameSchedulerTest {
+    private static final long VSYNC = Choreographer.VSYNC_NANOS;
+    private static final long START = 1000 * VSYNC;
+
+    private final List<Long> frames = new ArrayList<>();
+
+    @Test
+    public void drawsAtTheTargetRate() {
+        assertEquals(60, framesPerSecond(60));
+        assertEquals(30, framesPerSecond(30));
+        assertEquals(15, framesPerSecond(15));
+        assertEquals(10, framesPerSecond(10));
+    }
+
+    @Test
+    public void keepsAnEvenCadence() {
+        FrameScheduler scheduler = new FrameScheduler(frames::add, 30);
+        scheduler.start();
+        vsyncs(scheduler, START, 60);
+        for (int i = 1; i < frames.size(); i++) {
+            assertEquals(2 * VSYNC, frames.get(i) - frames.get(i - 1));
+        }
+    }
+
+    @Test
+    public void skipsMissedSlotsAfterAnOverrun() {
+        FrameScheduler scheduler = new FrameScheduler(frames::add, 30);
+        scheduler.start();
+        scheduler.doFrame(START);
+        /* The frame took five vsyncs, the slot at two vsyncs is gone. */
+        vsyncs(scheduler, START + 5 * VSYNC, 3);
+        assertEquals(1, scheduler.getSkippedFrames());
+        /* No burst to catch up, the cadence restarts at the late frame. */
+        assertEquals(3, frames.size());
+        assertEquals(START + 5 * VSYNC, (long) frames.get(1));
+        assertEquals(START + 7 * VSYNC, (long) frames.get(2));
+    }
+
+    @Test
+    public void drawsNothingWhenStopped() {
+        FrameScheduler scheduler = new FrameScheduler(frames::add, 30);
+        vsyncs(scheduler, START, 10);
+        scheduler.start();
+        scheduler.stop();
+        vsyncs(scheduler, START + 10 * VSYNC, 10);
+        assertTrue(frames.isEmpty());
+    }
+
+    private int framesPerSecond(int targetFps) {
+        frames.clear();
+        FrameScheduler scheduler = new FrameScheduler(frames::add, targetFps);
+        scheduler.start();
+        vsyncs(scheduler, START, 60);
+        return frames.size();
+    }
+
+    private static void vsyncs(FrameScheduler scheduler, long from, int count) {
+        for (int i = 0; i < count; i++) {
+            scheduler.doFrame(from + i * VSYNC);
+        }
+    }
+}
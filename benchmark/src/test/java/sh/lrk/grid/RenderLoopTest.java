@@ -0,0 +1,201 @@
+package sh.lrk.grid;
+
+import android.graphics.Canvas;
+import android.os.SystemClock;
+import android.view.Choreographer;
+import android.view.Surface;
+import android.view.SurfaceHolder;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static sh.lrk.grid.GridPreferences.KEY_ACTIVE_DIRECTION;
+import static sh.lrk.grid.GridPreferences.KEY_FRAME_RATE;
+
+/**
+ * Runs the loop on its real thread against the fake 60 Hz Choreographer, with the manual clock so
+ * the frames don't depend on how busy the machine is.
+ */
+public class RenderLoopTest {
+    private static final String THREAD_NAME = "RenderLoopTest";
+    private static final long VSYNC = Choreographer.VSYNC_NANOS;
+
+    private final CountingRenderer renderer = new CountingRenderer();
+    private final TestSurfaceHolder surfaceHolder = new TestSurfaceHolder();
+    private RenderLoop loop;
+
+    @Before
+    public void setUp() {
+        SystemClock.useManualClock();
+    }
+
+    @After
+    public void tearDown() {
+        if (loop != null) {
+            loop.quit();
+        }
+        SystemClock.useRealClock();
+    }
+
+    @Test
+    public void ownsOneThreadUntilQuit() {
+        assertEquals(0, loopThreads());
+        loop = new RenderLoop(THREAD_NAME, surfaceHolder, renderer, settings(30, "RIGHT"));
+        assertEquals(1, loopThreads());
+        loop.onSettingsChanged(settings(60, "DOWN"));
+        loop.requestRedraw();
+        SystemClock.advance(100);
+        assertEquals(1, loopThreads());
+
+        loop.quit();
+        loop = null;
+        assertEquals(0, loopThreads());
+        int frames = renderer.frameCount();
+        SystemClock.advance(100);
+        assertEquals(frames, renderer.frameCount());
+    }
+
+    @Test
+    public void animatesAtTheTargetFrameRate() {
+        loop = new RenderLoop(THREAD_NAME, surfaceHolder, renderer, settings(30, "RIGHT", "DOWN"));
+        SystemClock.advance(1000);
+        /* The first frame is drawn right away, the scheduler paces the rest on every other vsync. */
+        List<Long> frameTimes = renderer.frameTimes();
+        assertCadence(frameTimes.subList(1, frameTimes.size()), 30, 2 * VSYNC);
+
+        loop.onSettingsChanged(settings(15, "RIGHT", "DOWN"));
+        SystemClock.advance(0);
+        renderer.clear();
+        SystemClock.advance(1000);
+        assertCadence(renderer.frameTimes(), 15, 4 * VSYNC);
+    }
+
+    @Test
+    public void staticGridOnlyDrawsOnRequest() {
+        loop = new RenderLoop(THREAD_NAME, surfaceHolder, renderer, settings(30));
+        SystemClock.advance(1000);
+        assertEquals(1, renderer.frameCount());
+
+        loop.requestRedraw();
+        SystemClock.advance(1000);
+        assertEquals(2, renderer.frameCount());
+    }
+
+    @Test
+    public void stopsAnimatingWithoutADirection() {
+        loop = new RenderLoop(THREAD_NAME, surfaceHolder, renderer, settings(30, "UP"));
+        SystemClock.advance(500);
+        loop.onSettingsChanged(settings(30));
+        SystemClock.advance(0);
+        int frames = renderer.frameCount();
+        SystemClock.advance(1000);
+        assertEquals(frames, renderer.frameCount());
+    }
+
+    @Test
+    public void settingsReachTheRendererOnTheLoopThread() {
+        GridSettings settings = settings(15);
+        loop = new RenderLoop(THREAD_NAME, surfaceHolder, renderer, settings(30));
+        loop.onSettingsChanged(settings);
+        SystemClock.advance(0);
+        assertEquals(settings, renderer.settings());
+        assertEquals(THREAD_NAME, renderer.settingsThread());
+    }
+
+    @Test
+    public void skipsFramesWithoutAValidSurface() {
+        surfaceHolder.surface.release();
+        loop = new RenderLoop(THREAD_NAME, surfaceHolder, renderer, settings(60, "RIGHT"));
+        loop.requestRedraw();
+        SystemClock.advance(1000);
+        assertEquals(0, renderer.frameCount());
+    }
+
+    private static void assertCadence(List<Long> frameTimes, int frames, long intervalNanos) {
+        assertEquals(frames, frameTimes.size());
+        for (int i = 1; i < frameTimes.size(); i++) {
+            assertEquals(intervalNanos, frameTimes.get(i) - frameTimes.get(i - 1));
+        }
+    }
+
+    private static GridSettings settings(int fps, String... directions) {
+        FakeSharedPreferences preferences = new FakeSharedPreferences();
+        preferences.edit()
+                .putStringSet(KEY_ACTIVE_DIRECTION, new HashSet<>(Arrays.asList(directions)))
+                .putInt(KEY_FRAME_RATE, fps)
+                .apply();
+        return GridSettings.load(preferences);
+    }
+
+    private static int loopThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (THREAD_NAME.equals(thread.getName()) && thread.isAlive()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static final class CountingRenderer implements RenderLoop.Renderer {
+        private final List<Long> frameTimes = new ArrayList<>();
+        private GridSettings settings;
+        private String settingsThread;
+
+        @Override
+        public synchronized void onSettingsChanged(GridSettings settings) {
+            this.settings = settings;
+            settingsThread = Thread.currentThread().getName();
+        }
+
+        @Override
+        public synchronized void render(Canvas canvas, long frameTimeNanos) {
+            frameTimes.add(frameTimeNanos);
+        }
+
+        synchronized int frameCount() {
+            return frameTimes.size();
+        }
+
+        synchronized List<Long> frameTimes() {
+            return new ArrayList<>(frameTimes);
+        }
+
+        synchronized void clear() {
+            frameTimes.clear();
+        }
+
+        synchronized GridSettings settings() {
+            return settings;
+        }
+
+        synchronized String settingsThread() {
+            return settingsThread;
+        }
+    }
+
+    private static final class TestSurfaceHolder implements SurfaceHolder {
+        final Surface surface = new Surface();
+
+        @Override
+        public Surface getSurface() {
+            return surface;
+        }
+
+        @Override
+        public Canvas lockCanvas() {
+            return new Canvas();
+        }
+
+        @Override
+        public void unlockCanvasAndPost(Canvas canvas) {
+        }
+    }
+}
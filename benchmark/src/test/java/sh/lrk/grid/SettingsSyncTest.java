@@ -0,0 +1,159 @@
+package sh.lrk.grid;
+
+import android.os.SystemClock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static sh.lrk.grid.GridPreferences.KEY_ACTIVE_DIRECTION;
+import static sh.lrk.grid.GridPreferences.KEY_EASING;
+import static sh.lrk.grid.GridPreferences.KEY_GRID_PATTERN;
+import static sh.lrk.grid.GridPreferences.KEY_LINE_COUNT;
+import static sh.lrk.grid.GridPreferences.KEY_SPEED;
+import static sh.lrk.grid.GridPreferences.KEY_THEME_AMBIENT_COLOR;
+import static sh.lrk.grid.GridPreferences.KEY_THEME_GRID_COLOR;
+import static sh.lrk.grid.GridPreferences.KEY_THEME_IMAGE;
+import static sh.lrk.grid.GridPreferences.KEY_USE_24H;
+import static sh.lrk.grid.SettingsSync.DEBOUNCE_MS;
+import static sh.lrk.grid.SettingsSync.MAX_DELAY_MS;
+
+/**
+ * Sends settings through the in-process transport, the manual clock plays the main thread's
+ * handler.
+ */
+public class SettingsSyncTest {
+    private final FakeSharedPreferences preferences = new FakeSharedPreferences();
+    private final InProcessSettingsTransport transport = new InProcessSettingsTransport();
+    private SettingsSync sync;
+
+    @Before
+    public void setUp() {
+        SystemClock.useManualClock();
+        sync = new SettingsSync(preferences, transport);
+    }
+
+    @After
+    public void tearDown() {
+        SystemClock.useRealClock();
+    }
+
+    @Test
+    public void writesABurstOnce() {
+        transport.send(values(KEY_LINE_COUNT, 8));
+        SystemClock.advance(DEBOUNCE_MS - 100);
+        transport.send(values(KEY_SPEED, 60));
+        SystemClock.advance(DEBOUNCE_MS - 100);
+        transport.send(values(KEY_USE_24H, false, KEY_GRID_PATTERN, "HEX"));
+        SystemClock.advance(DEBOUNCE_MS - 1);
+        assertEquals(0, preferences.getWriteCount());
+
+        SystemClock.advance(1);
+        assertEquals(1, preferences.getWriteCount());
+        assertEquals(8, preferences.getInt(KEY_LINE_COUNT, 0));
+        assertEquals(60, preferences.getInt(KEY_SPEED, 0));
+        assertFalse(preferences.getBoolean(KEY_USE_24H, true));
+        assertEquals("HEX", preferences.getString(KEY_GRID_PATTERN, null));
+    }
+
+    @Test
+    public void writesAContinuousBurstAtTheMaximumDelay() {
+        /* A change every 100 ms never leaves the debounce time quiet. */
+        for (long sent = 0; sent < MAX_DELAY_MS; sent += 100) {
+            if (sent > 0) {
+                SystemClock.advance(100);
+            }
+            transport.send(values(KEY_SPEED, sent % 200 == 0 ? 60 : 120));
+            assertEquals(0, preferences.getWriteCount());
+        }
+        SystemClock.advance(99);
+        assertEquals(0, preferences.getWriteCount());
+        SystemClock.advance(1);
+        assertEquals(1, preferences.getWriteCount());
+        assertEquals(120, preferences.getInt(KEY_SPEED, 0));
+    }
+
+    @Test
+    public void writesADeliveryOnceWhenTheServiceGoesAway() {
+        /* The service is usually destroyed right after it got one delivery. */
+        transport.send(values(KEY_LINE_COUNT, 12, KEY_SPEED, 120, KEY_USE_24H, false,
+                KEY_THEME_GRID_COLOR, 0xFFFF8800));
+        sync.release();
+        assertEquals(1, preferences.getWriteCount());
+
+        /* The next delivery binds a new one, it's a write of its own. */
+        InProcessSettingsTransport nextTransport = new InProcessSettingsTransport();
+        SettingsSync nextSync = new SettingsSync(preferences, nextTransport);
+        nextTransport.send(values(KEY_SPEED, 60));
+        nextSync.release();
+        assertEquals(2, preferences.getWriteCount());
+    }
+
+    @Test
+    public void syncsThemeColors() {
+        transport.send(values(KEY_THEME_GRID_COLOR, 0xFFFF8800, KEY_THEME_AMBIENT_COLOR, 0xFFFFAA55));
+        SystemClock.advance(DEBOUNCE_MS);
+        assertEquals(0xFFFF8800, preferences.getInt(KEY_THEME_GRID_COLOR, 0));
+        assertEquals(0xFFFFAA55, preferences.getInt(KEY_THEME_AMBIENT_COLOR, 0));
+    }
+
+    @Test
+    public void ignoresUnknownKeysAndValues() {
+        transport.send(values("unknown", 1));
+        transport.send(values(KEY_GRID_PATTERN, "SPIRAL"));
+        transport.send(values(KEY_EASING, "BOUNCE"));
+        transport.send(values(KEY_ACTIVE_DIRECTION, Arrays.asList("UP", "SIDEWAYS")));
+        transport.send(values(KEY_LINE_COUNT, 5));
+        transport.send(values(KEY_LINE_COUNT, 17));
+        transport.send(values(KEY_SPEED, 14));
+        transport.send(values(KEY_SPEED, 121));
+        transport.send(values(KEY_SPEED, "60"));
+        transport.send(values(KEY_THEME_GRID_COLOR, "#ff8800"));
+        transport.send(values(KEY_THEME_IMAGE, "content://image"));
+        SystemClock.advance(MAX_DELAY_MS);
+        assertEquals(0, preferences.getWriteCount());
+        assertTrue(preferences.getAll().isEmpty());
+    }
+
+    @Test
+    public void keepsTheValidValuesOfADelivery() {
+        transport.send(values(KEY_LINE_COUNT, 17, KEY_EASING, "EASE_OUT",
+                KEY_ACTIVE_DIRECTION, Arrays.asList("UP", "LEFT")));
+        SystemClock.advance(DEBOUNCE_MS);
+        assertEquals(1, preferences.getWriteCount());
+        assertFalse(preferences.contains(KEY_LINE_COUNT));
+        assertEquals("EASE_OUT", preferences.getString(KEY_EASING, null));
+        assertEquals(new HashSet<>(Arrays.asList("UP", "LEFT")),
+                preferences.getStringSet(KEY_ACTIVE_DIRECTION, null));
+    }
+
+    @Test
+    public void releaseWritesWhatIsPending() {
+        transport.send(values(KEY_LINE_COUNT, 16));
+        sync.release();
+        assertEquals(1, preferences.getWriteCount());
+        assertEquals(16, preferences.getInt(KEY_LINE_COUNT, 0));
+
+        /* Nothing is received after the release. */
+        transport.send(values(KEY_LINE_COUNT, 6));
+        SystemClock.advance(MAX_DELAY_MS);
+        assertEquals(1, preferences.getWriteCount());
+        assertEquals(16, preferences.getInt(KEY_LINE_COUNT, 0));
+    }
+
+    private static Map<String, Object> values(Object... keysAndValues) {
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            values.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return values;
+    }
+}